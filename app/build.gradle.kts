@@ -64,7 +64,11 @@ dependencies {
     val roomVersion = "2.6.1"
     implementation("androidx.room:room-runtime:$roomVersion")
     implementation("androidx.room:room-ktx:$roomVersion")
+    implementation("androidx.room:room-paging:$roomVersion")
     ksp("androidx.room:room-compiler:$roomVersion")
+
+    // Paging for the task list
+    implementation("androidx.paging:paging-compose:3.2.1")
     
     // WorkManager (optional, but good for reliable background work)
     implementation("androidx.work:work-runtime-ktx:2.9.0")
@@ -72,7 +76,7 @@ dependencies {
     // Coil for images
     implementation("io.coil-kt:coil-compose:2.5.0")
     
-    // Gson for Converters
+    // Gson for reading legacy imagePaths JSON in MIGRATION_5_6
     implementation("com.google.code.gson:gson:2.10.1")
     
     testImplementation("junit:junit:4.13.2")
@@ -0,0 +1,95 @@
+package com.example.simpletodo
+
+import android.net.Uri
+import android.os.SystemClock
+import android.util.Log
+import androidx.test.ext.junit.runners.AndroidJUnit4
+import androidx.test.platform.app.InstrumentationRegistry
+import org.junit.After
+import org.junit.Assert.assertArrayEquals
+import org.junit.Assert.assertEquals
+import org.junit.Assert.assertNotNull
+import org.junit.Before
+import org.junit.Test
+import org.junit.runner.RunWith
+import java.io.File
+import java.io.FileOutputStream
+import kotlin.random.Random
+
+// Stream copy (InputStream.copyTo, default buffer) vs ImageStorageManager.copyWithChannels for
+// 1-50 MB files. Timings go to logcat (tag CopyBenchmark), median of ROUNDS each.
+@RunWith(AndroidJUnit4::class)
+class CopyBenchmarkTest {
+    private val context = InstrumentationRegistry.getInstrumentation().targetContext
+    private lateinit var dir: File
+
+    @Before
+    fun setUp() {
+        dir = File(context.cacheDir, "copy_benchmark").apply { mkdirs() }
+    }
+
+    @After
+    fun tearDown() {
+        dir.deleteRecursively()
+    }
+
+    @Test
+    fun channelCopyMatchesSource() {
+        val source = writeRandom(File(dir, "source.bin"), 1)
+        val dest = File(dir, "dest.bin")
+        val size = ImageStorageManager.copyWithChannels(context, Uri.fromFile(source), dest)
+        assertEquals(source.length(), size)
+        assertArrayEquals(source.readBytes(), dest.readBytes())
+    }
+
+    @Test
+    fun streamVsChannel() {
+        SIZES_MB.forEach { sizeMb ->
+            val source = writeRandom(File(dir, "source_$sizeMb.bin"), sizeMb)
+            val uri = Uri.fromFile(source)
+            val dest = File(dir, "dest.bin")
+
+            // Alternate the paths so neither always runs on a warmer cache
+            val stream = ArrayList<Long>(ROUNDS)
+            val channel = ArrayList<Long>(ROUNDS)
+            repeat(ROUNDS) {
+                stream += time(dest) {
+                    context.contentResolver.openInputStream(uri)!!.use { input ->
+                        FileOutputStream(dest).use { input.copyTo(it) }
+                    }
+                }
+                channel += time(dest) {
+                    assertNotNull(ImageStorageManager.copyWithChannels(context, uri, dest))
+                }
+            }
+            source.delete()
+            Log.i(TAG, "$sizeMb MB: stream ${stream.sorted()[ROUNDS / 2]} ms, channel ${channel.sorted()[ROUNDS / 2]} ms")
+        }
+    }
+
+    private inline fun time(dest: File, copy: () -> Unit): Long {
+        dest.delete()
+        val start = SystemClock.elapsedRealtime()
+        copy()
+        val elapsed = SystemClock.elapsedRealtime() - start
+        dest.delete()
+        return elapsed
+    }
+
+    private fun writeRandom(file: File, sizeMb: Int): File {
+        val chunk = ByteArray(1024 * 1024)
+        FileOutputStream(file).use { out ->
+            repeat(sizeMb) {
+                Random.nextBytes(chunk)
+                out.write(chunk)
+            }
+        }
+        return file
+    }
+
+    companion object {
+        private const val TAG = "CopyBenchmark"
+        private val SIZES_MB = listOf(1, 5, 10, 25, 50)
+        private const val ROUNDS = 3
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.simpletodo
+
+import android.app.AlarmManager
+import android.app.PendingIntent
+import android.content.Context
+import android.content.Intent
+import android.os.Build
+import android.os.SystemClock
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import java.util.Date
+import java.util.concurrent.atomic.AtomicLong
+
+// Keeps the reminder due queue in the database (scheduled_alarms) and arms a single
+// exact alarm for the earliest entry, instead of one platform alarm per todo.
+// When it fires, ReminderReceiver handles everything due and calls rearm() again.
+//
+// Quiet hours (QuietHours) are applied here: the alarm is armed for the first allowed time.
+//
+// Redundant work is skipped: queue entries whose trigger time is unchanged are not rewritten,
+// and AlarmManager is only called when the earliest trigger differs from the one already armed.
+object AlarmScheduler {
+    private const val QUEUE_REQUEST_CODE = -1
+    private const val PREFS = "alarm_scheduler"
+    private const val KEY_ARMED_AT = "armedAt"
+    private const val NOT_ARMED = -1L
+
+    private val armLock = Mutex()
+
+    private val scheduled = AtomicLong(0)
+    private val cancelled = AtomicLong(0)
+    private val skipped = AtomicLong(0)
+
+    // AlarmManager calls made / avoided by this process
+    val scheduleCount: Long get() = scheduled.get()
+    val cancelCount: Long get() = cancelled.get()
+    val skipCount: Long get() = skipped.get()
+
+    suspend fun schedule(context: Context, todoId: Long, triggerAt: Long) {
+        update(context, schedule = listOf(ScheduledAlarm(todoId, triggerAt)))
+    }
+
+    suspend fun cancel(context: Context, todoId: Long) {
+        update(context, cancel = listOf(todoId))
+    }
+
+    // Applies a batch of queue changes in one transaction, then re-arms once
+    suspend fun update(
+        context: Context,
+        schedule: List<ScheduledAlarm> = emptyList(),
+        cancel: List<Long> = emptyList()
+    ) = withContext(Dispatchers.IO) {
+        if (schedule.isEmpty() && cancel.isEmpty()) return@withContext
+        val dao = TodoDatabase.getDatabase(context).alarmQueueDao()
+
+        val current = dao.getTriggers(schedule.map { it.todoId })
+        val changed = schedule.filter { current[it.todoId] != it.triggerAt }
+        if (changed.isEmpty() && cancel.isEmpty()) {
+            skipped.incrementAndGet()
+            AppLogger.log(context, "AlarmScheduler", "Skipped ${schedule.size} unchanged alarm(s)")
+            return@withContext
+        }
+
+        // Cancels are always applied: a deleted todo's entry may already be gone via cascade,
+        // but the armed alarm may still point at it
+        dao.applyChanges(changed, cancel)
+        rearm(context)
+    }
+
+    // Brings the queue back in line with todo_items and force re-arms. For moments when the platform
+    // alarm or the queue may be stale: boot, clock/timezone change, app update, app start after a force-stop.
+    suspend fun reconcile(context: Context, reason: String) = withContext(Dispatchers.IO) {
+        val start = SystemClock.elapsedRealtime()
+        val result = TodoDatabase.getDatabase(context).alarmQueueDao().reconcile(System.currentTimeMillis())
+        rearm(context, force = true)
+        AppMetrics.record(context, "alarm.reconcile", SystemClock.elapsedRealtime() - start)
+        AppLogger.log(
+            context,
+            "AlarmScheduler",
+            "Reconciled ($reason): ${result.added} added, ${result.fixed} fixed, ${result.removed} removed"
+        )
+    }
+
+    // Arms (or clears) the platform alarm for the earliest queued trigger. `force` ignores the
+    // remembered armed time, for when the platform may have dropped the alarm (boot, alarm fired,
+    // app restarted after a force-stop).
+    suspend fun rearm(context: Context, force: Boolean = false) = withContext(Dispatchers.IO) {
+        armLock.withLock {
+            val dao = TodoDatabase.getDatabase(context).alarmQueueDao()
+            val quiet = ReminderSettings.quietWindows(context)
+            // Arm for the first *allowed* time, so quiet hours cost no wake-up at all. Overdue
+            // entries are checked as of now, matching the receiver's deferral test.
+            val now = System.currentTimeMillis()
+            val firstTime = dao.getEarliestTrigger()?.let { maxOf(it, now) }
+            val firstRetry = dao.getEarliestRetryTrigger()?.let { maxOf(it, now) }
+            val earliest = listOfNotNull(
+                firstTime?.let { QuietHours.nextAllowed(it, quiet, isRetry = false) },
+                firstRetry?.let { QuietHours.nextAllowed(it, quiet, isRetry = true) }
+            ).minOrNull() ?: NOT_ARMED
+            val raw = listOfNotNull(firstTime, firstRetry).minOrNull()
+            val prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+            val armedAt = prefs.getLong(KEY_ARMED_AT, NOT_ARMED)
+
+            if (!force && earliest == armedAt) {
+                skipped.incrementAndGet()
+                return@withLock
+            }
+
+            val alarmManager = context.getSystemService(AlarmManager::class.java)
+            val pendingIntent = queuePendingIntent(context)
+
+            if (earliest == NOT_ARMED) {
+                alarmManager.cancel(pendingIntent)
+                cancelled.incrementAndGet()
+                AppLogger.log(context, "AlarmScheduler", "Queue empty, alarm cleared")
+            } else {
+                if (raw != null && raw < earliest) {
+                    AppLogger.log(context, "AlarmScheduler", "Quiet hours: deferred ${Date(raw)} -> ${Date(earliest)}")
+                }
+                AppLogger.log(context, "AlarmScheduler", "Arming queue alarm at ${Date(earliest)}")
+
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+                    if (alarmManager.canScheduleExactAlarms()) {
+                        alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, earliest, pendingIntent)
+                    } else {
+                        AppLogger.log(context, "AlarmScheduler", "Cannot schedule exact alarm! Using inexact.")
+                        alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, earliest, pendingIntent)
+                    }
+                } else {
+                    alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, earliest, pendingIntent)
+                }
+                scheduled.incrementAndGet()
+            }
+            prefs.edit().putLong(KEY_ARMED_AT, earliest).apply()
+        }
+    }
+
+    private fun queuePendingIntent(context: Context): PendingIntent {
+        val intent = Intent(context, ReminderReceiver::class.java).apply {
+            action = ReminderReceiver.ACTION_REMINDER
+        }
+        return PendingIntent.getBroadcast(
+            context,
+            QUEUE_REQUEST_CODE,
+            intent,
+            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
+        )
+    }
+}
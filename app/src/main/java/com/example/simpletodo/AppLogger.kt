@@ -1,23 +1,103 @@
 package com.example.simpletodo
 
 import android.content.Context
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.channels.Channel
+import kotlinx.coroutines.delay
 import kotlinx.coroutines.launch
-import java.text.SimpleDateFormat
-import java.util.Date
-import java.util.Locale
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import java.util.concurrent.ConcurrentLinkedQueue
+import java.util.concurrent.atomic.AtomicBoolean
+import java.util.concurrent.atomic.AtomicInteger
+import java.util.concurrent.atomic.AtomicLong
 
+// Buffers log lines in memory and writes them in one insert transaction per batch,
+// instead of one coroutine + one transaction per line.
 object AppLogger {
-    private val scope = CoroutineScope(Dispatchers.IO)
+    private const val MAX_BUFFERED = 500 // Entries beyond this are dropped until the next flush
+    private const val FLUSH_THRESHOLD = 50
+    private const val FLUSH_INTERVAL_MS = 2_000L
+    private const val PRUNE_EVERY_FLUSHED = 500L // Retention check cadence, in flushed entries
+
+    private val scope = AppRuntime.scope
+    private val buffer = ConcurrentLinkedQueue<LogEntry>()
+    private val buffered = AtomicInteger(0)
+    private val timedFlushPending = AtomicBoolean(false)
+    private val workerStarted = AtomicBoolean(false)
+    private val sizeTrigger = Channel<Unit>(Channel.CONFLATED)
+    private val flushLock = Mutex()
+
+    private val dropped = AtomicLong(0)
+    private val flushed = AtomicLong(0)
+    private val nextPruneAt = AtomicLong(0) // 0: prune after the first flush of the process
+    private val pruning = AtomicBoolean(false)
+
+    val droppedCount: Long get() = dropped.get()
+    val flushedCount: Long get() = flushed.get()
 
     fun log(context: Context, tag: String, message: String) {
+        if (buffered.incrementAndGet() > MAX_BUFFERED) {
+            buffered.decrementAndGet()
+            dropped.incrementAndGet()
+            return
+        }
+        buffer.offer(LogEntry(tag = tag, message = message))
+
+        val appContext = context.applicationContext
+        startWorker(appContext)
+        if (buffered.get() >= FLUSH_THRESHOLD) {
+            sizeTrigger.trySend(Unit)
+        } else if (timedFlushPending.compareAndSet(false, true)) {
+            scope.launch {
+                delay(FLUSH_INTERVAL_MS)
+                flush(appContext)
+            }
+        }
+    }
+
+    // Writes everything buffered so far. Receivers call this before pendingResult.finish()
+    // so the process can be frozen without losing lines.
+    suspend fun flush(context: Context) {
+        flushLock.withLock {
+            timedFlushPending.set(false)
+            val batch = ArrayList<LogEntry>(buffered.get())
+            while (true) {
+                val entry = buffer.poll() ?: break
+                batch.add(entry)
+            }
+            if (batch.isEmpty()) return
+            buffered.addAndGet(-batch.size)
+
+            try {
+                TodoDatabase.getDatabase(context).logDao().insertAll(batch)
+                val total = flushed.addAndGet(batch.size.toLong())
+                maybePrune(context, total)
+            } catch (e: Exception) {
+                dropped.addAndGet(batch.size.toLong())
+                e.printStackTrace()
+            }
+        }
+    }
+
+    private fun maybePrune(context: Context, totalFlushed: Long) {
+        if (totalFlushed < nextPruneAt.get() || !pruning.compareAndSet(false, true)) return
+        nextPruneAt.set(totalFlushed + PRUNE_EVERY_FLUSHED)
         scope.launch {
             try {
-                val db = TodoDatabase.getDatabase(context)
-                db.logDao().insert(LogEntry(tag = tag, message = message))
+                LogRetention.prune(context)
             } catch (e: Exception) {
                 e.printStackTrace()
+            } finally {
+                pruning.set(false)
+            }
+        }
+    }
+
+    private fun startWorker(appContext: Context) {
+        if (!workerStarted.compareAndSet(false, true)) return
+        scope.launch {
+            for (signal in sizeTrigger) {
+                flush(appContext)
             }
         }
     }
@@ -0,0 +1,66 @@
+package com.example.simpletodo
+
+import android.content.Context
+import kotlin.math.ceil
+
+// Small persisted timing metrics (count, last, max and a window of recent samples per name).
+// Stored in SharedPreferences so values recorded by receivers survive the process being killed.
+object AppMetrics {
+    private const val PREFS = "app_metrics"
+    private const val MAX_SAMPLES = 50
+
+    data class Summary(
+        val name: String,
+        val count: Long,
+        val lastMs: Long,
+        val maxMs: Long,
+        val samples: List<Long> // Most recent last
+    ) {
+        // Nearest-rank percentile over the recent samples, p in 0..1
+        fun percentile(p: Double): Long {
+            if (samples.isEmpty()) return 0
+            val sorted = samples.sorted()
+            val rank = ceil(p * sorted.size).toInt().coerceIn(1, sorted.size)
+            return sorted[rank - 1]
+        }
+    }
+
+    @Synchronized
+    fun record(context: Context, name: String, valueMs: Long) {
+        val prefs = prefs(context)
+        val samples = (parseSamples(prefs.getString("$name.samples", null)) + valueMs).takeLast(MAX_SAMPLES)
+        prefs.edit()
+            .putLong("$name.count", prefs.getLong("$name.count", 0) + 1)
+            .putLong("$name.last", valueMs)
+            .putLong("$name.max", maxOf(prefs.getLong("$name.max", 0), valueMs))
+            .putString("$name.samples", samples.joinToString(","))
+            .apply()
+        AppLogger.log(context, "Metrics", "$name = $valueMs ms")
+    }
+
+    @Synchronized
+    fun summary(context: Context, name: String): Summary? {
+        val prefs = prefs(context)
+        if (!prefs.contains("$name.count")) return null
+        return Summary(
+            name = name,
+            count = prefs.getLong("$name.count", 0),
+            lastMs = prefs.getLong("$name.last", 0),
+            maxMs = prefs.getLong("$name.max", 0),
+            samples = parseSamples(prefs.getString("$name.samples", null))
+        )
+    }
+
+    fun summaries(context: Context): List<Summary> =
+        prefs(context).all.keys
+            .filter { it.endsWith(".count") }
+            .map { it.removeSuffix(".count") }
+            .sorted()
+            .mapNotNull { summary(context, it) }
+
+    private fun parseSamples(value: String?): List<Long> =
+        value?.split(',')?.mapNotNull { it.toLongOrNull() } ?: emptyList()
+
+    private fun prefs(context: Context) =
+        context.applicationContext.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+}
@@ -0,0 +1,55 @@
+package com.example.simpletodo
+
+import android.content.Context
+import android.os.Process
+import android.os.SystemClock
+import kotlinx.coroutines.CoroutineDispatcher
+import kotlinx.coroutines.CoroutineScope
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.SupervisorJob
+import kotlinx.coroutines.launch
+import java.util.concurrent.atomic.AtomicBoolean
+
+// Process-wide coroutine runtime shared by receivers and background helpers, instead of
+// one CoroutineScope per receiver instance.
+object AppRuntime {
+    // Receivers do short database + binder work; a few threads is plenty and keeps bursts of
+    // broadcasts from fanning out across the whole IO pool
+    @OptIn(ExperimentalCoroutinesApi::class)
+    val io: CoroutineDispatcher = Dispatchers.IO.limitedParallelism(4)
+
+    val scope = CoroutineScope(SupervisorJob() + io)
+
+    private val firstBroadcast = AtomicBoolean(true)
+    private val activityCreated = AtomicBoolean(false)
+
+    // A process forked for a broadcast delivers it within a second or two of starting
+    private const val COLD_START_WINDOW_MS = 10_000L
+
+    // Startup / time-to-notification metrics recorded by the runtime and ReminderReceiver
+    val LATENCY_METRICS = listOf("notify.latency.cold", "notify.latency.warm", "process.start_to_receive", "db.prewarm")
+
+    // Opens the database (and runs migrations / schema validation) in the background at process
+    // start, so the first alarm in a cold process doesn't pay for it before notifying
+    fun prewarm(context: Context) {
+        val appContext = context.applicationContext
+        scope.launch {
+            val start = SystemClock.elapsedRealtime()
+            TodoDatabase.getDatabase(appContext).openHelper.writableDatabase
+            AppMetrics.record(appContext, "db.prewarm", SystemClock.elapsedRealtime() - start)
+            WakeLockManager.warm(appContext)
+        }
+    }
+
+    fun noteActivityCreated() {
+        activityCreated.set(true)
+    }
+
+    // True at most once per process: for the first broadcast, and only if the process was started
+    // for it (just started, no UI yet). A process the user opened earlier is warm.
+    fun claimColdStart(): Boolean =
+        firstBroadcast.getAndSet(false) &&
+            !activityCreated.get() &&
+            SystemClock.elapsedRealtime() - Process.getStartElapsedRealtime() < COLD_START_WINDOW_MS
+}
@@ -0,0 +1,29 @@
+package com.example.simpletodo
+
+import androidx.room.Entity
+import androidx.room.Index
+import androidx.room.PrimaryKey
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+// v1.7: content-addressed image store (see AttachmentStore). One row per stored file, keyed by
+// the SHA-256 of the imported source bytes. refCount counts todo_attachments rows with this path
+// and is maintained by triggers, so every insert/delete path (including CASCADE) keeps it right.
+@Entity(
+    tableName = "attachment_blobs",
+    indices = [Index(value = ["path"], unique = true)]
+)
+data class AttachmentBlob(
+    @PrimaryKey val hash: String,
+    val path: String,
+    val sizeBytes: Long,
+    val refCount: Int = 0,
+    val touchedAt: Long // Last import that produced or reused it; the sweep leaves fresh blobs alone
+) {
+    companion object {
+        // Room doesn't manage triggers: created by MIGRATION_10_11 and on fresh installs by the database callback
+        fun createTriggers(db: SupportSQLiteDatabase) {
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS `todo_attachments_blob_ref` AFTER INSERT ON `todo_attachments` BEGIN UPDATE `attachment_blobs` SET refCount = refCount + 1 WHERE path = NEW.path; END")
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS `todo_attachments_blob_unref` AFTER DELETE ON `todo_attachments` BEGIN UPDATE `attachment_blobs` SET refCount = refCount - 1 WHERE path = OLD.path; END")
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.simpletodo
+
+import android.content.Context
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.withContext
+import kotlinx.coroutines.yield
+import java.io.File
+import java.nio.file.DirectoryStream
+import java.nio.file.Files
+import java.nio.file.Path
+
+// Mark-and-sweep collector for attachment files nothing points at any more: legacy img_* files
+// in filesDir, store files without a row (e.g. a crash between writing and recording one) and
+// thumbnails whose image is gone. Directories are streamed in batches and each batch is marked
+// against the database with one IN query, so memory stays flat however many files there are.
+object AttachmentGc {
+    data class Result(val scanned: Int, val deleted: Int, val reclaimedBytes: Long)
+
+    private const val BATCH = 400
+    // Imports write the file before its row is inserted; leave anything this recent alone
+    const val GRACE_MS = 60 * 60 * 1000L
+    private val IMAGE_EXTENSIONS = listOf("jpg", "png", "orig")
+
+    suspend fun collect(context: Context): Result = withContext(Dispatchers.IO) {
+        val dao = TodoDatabase.getDatabase(context).todoDao()
+        val cutoff = System.currentTimeMillis() - GRACE_MS
+        val totals = Tally()
+
+        // Images first, so thumbnails of images deleted in this run are collected too
+        sweep(context.filesDir, "img_*", cutoff, totals) { batch ->
+            val referenced = dao.getReferencedPaths(batch.map { it.absolutePath })
+            batch.filter { it.absolutePath !in referenced }
+        }
+        sweep(AttachmentStore.dir(context), "*", cutoff, totals) { batch ->
+            val referenced = dao.getReferencedPaths(batch.map { it.absolutePath })
+            batch.filter { it.absolutePath !in referenced }
+        }
+        // "<image name>_<px>.jpg": orphaned once no image with that name is left on disk
+        sweep(Thumbnails.dir(context), "*_*.jpg", cutoff, totals) { batch ->
+            batch.filter { thumb -> !imageExists(context, thumb.name.substringBeforeLast('_')) }
+        }
+
+        val result = Result(totals.scanned, totals.deleted, totals.reclaimed)
+        AppLogger.log(
+            context,
+            "AttachmentGc",
+            "Scanned ${result.scanned} files, deleted ${result.deleted}, reclaimed ${result.reclaimedBytes / 1024} KB"
+        )
+        result
+    }
+
+    private class Tally {
+        var scanned = 0
+        var deleted = 0
+        var reclaimed = 0L
+    }
+
+    // Streams `dir`, handing old-enough files to `unreferenced` a batch at a time and deleting
+    // whatever it returns
+    private suspend fun sweep(
+        dir: File,
+        glob: String,
+        cutoff: Long,
+        totals: Tally,
+        unreferenced: suspend (List<File>) -> List<File>
+    ) {
+        if (!dir.isDirectory) return
+        val batch = ArrayList<File>(BATCH)
+        suspend fun flush() {
+            if (batch.isEmpty()) return
+            unreferenced(batch).forEach { file ->
+                val size = file.length()
+                if (file.delete()) {
+                    totals.deleted++
+                    totals.reclaimed += size
+                }
+            }
+            batch.clear()
+            yield()
+        }
+
+        Files.newDirectoryStream(dir.toPath(), glob).use { stream: DirectoryStream<Path> ->
+            for (path in stream) {
+                val file = path.toFile()
+                totals.scanned++
+                if (!file.isFile || file.lastModified() >= cutoff) continue
+                batch.add(file)
+                if (batch.size == BATCH) flush()
+            }
+        }
+        flush()
+    }
+
+    private fun imageExists(context: Context, name: String): Boolean =
+        listOf(context.filesDir, AttachmentStore.dir(context)).any { dir ->
+            IMAGE_EXTENSIONS.any { File(dir, "$name.$it").exists() }
+        }
+}
@@ -0,0 +1,141 @@
+package com.example.simpletodo
+
+import android.content.Context
+import android.net.Uri
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.io.FileInputStream
+import java.io.FileNotFoundException
+import java.io.FileOutputStream
+import java.nio.channels.FileChannel
+import java.security.DigestInputStream
+import java.security.MessageDigest
+
+// Content-addressed attachment files in filesDir/blobs, named by the SHA-256 of the picked
+// image's bytes. Importing the same image again reuses the stored file; attachment_blobs keeps
+// a reference count per file (maintained by triggers on todo_attachments) and sweep() deletes a
+// file only once nothing points at it. Pre-v1.7 img_<UUID> files are not managed here.
+object AttachmentStore {
+    private const val DIR = "blobs"
+    private const val BUFFER_SIZE = 64 * 1024
+    private const val MAP_WINDOW = 64L * 1024 * 1024
+    private const val SWEEP_BATCH = 100
+    // An imported blob has no reference until the todo is saved; don't collect it in between
+    private const val RELEASE_GRACE_MS = 10 * 60 * 1000L
+
+    // lookup / publish / sweep of one hash must not interleave (e.g. a sweep deleting a file
+    // an import just decided to reuse)
+    private val lock = Mutex()
+
+    data class Staged(val hash: String, val file: File, val sizeBytes: Long)
+
+    fun dir(context: Context): File = File(context.filesDir, DIR)
+
+    fun isManaged(context: Context, path: String): Boolean =
+        File(path).parentFile == dir(context)
+
+    // Copies `uri` to a temp file in cacheDir and hashes it. Providers with a real file descriptor
+    // take the channel copy and are hashed from the mapped copy; others are hashed as they stream.
+    fun stage(context: Context, uri: Uri): Staged {
+        val temp = File.createTempFile("import_", ".tmp", context.cacheDir)
+        try {
+            ImageStorageManager.copyWithChannels(context, uri, temp)?.let { size ->
+                return Staged(hashFile(temp), temp, size)
+            }
+            val digest = MessageDigest.getInstance("SHA-256")
+            val input = context.contentResolver.openInputStream(uri)
+                ?: throw FileNotFoundException("No stream for $uri")
+            val size = DigestInputStream(input, digest).use { hashing ->
+                FileOutputStream(temp).use { out -> hashing.copyTo(out, BUFFER_SIZE) }
+            }
+            return Staged(digest.digest().toHex(), temp, size)
+        } catch (e: Exception) {
+            temp.delete()
+            throw e
+        }
+    }
+
+    // Reads through the page cache the copy just filled, without a heap buffer
+    private fun hashFile(file: File): String {
+        val digest = MessageDigest.getInstance("SHA-256")
+        FileInputStream(file).channel.use { channel ->
+            val size = channel.size()
+            var position = 0L
+            while (position < size) {
+                val length = minOf(MAP_WINDOW, size - position)
+                digest.update(channel.map(FileChannel.MapMode.READ_ONLY, position, length))
+                position += length
+            }
+        }
+        return digest.digest().toHex()
+    }
+
+    // Path of an already stored copy of `hash`, or null if it has to be written
+    suspend fun lookup(context: Context, hash: String): String? = lock.withLock {
+        val dao = TodoDatabase.getDatabase(context).attachmentBlobDao()
+        val blob = dao.getByHash(hash) ?: return@withLock null
+        if (!File(blob.path).exists()) return@withLock null
+        dao.touch(hash, System.currentTimeMillis())
+        blob.path
+    }
+
+    // Moves a fully written `file` into the store under `hash`. A row whose file went missing
+    // keeps its path (attachments and the count refer to it), so the file is restored there.
+    suspend fun publish(context: Context, hash: String, file: File, extension: String): String? = lock.withLock {
+        val dao = TodoDatabase.getDatabase(context).attachmentBlobDao()
+        val now = System.currentTimeMillis()
+        val existing = dao.getByHash(hash)
+        if (existing != null && File(existing.path).exists()) {
+            file.delete()
+            dao.touch(hash, now)
+            return@withLock existing.path
+        }
+        val target = File(existing?.path ?: File(dir(context), "$hash.$extension").path)
+        target.parentFile?.mkdirs()
+        if (!file.renameTo(target)) {
+            file.delete()
+            return@withLock null
+        }
+        if (existing == null) {
+            dao.insert(AttachmentBlob(hash, target.absolutePath, target.length(), touchedAt = now))
+        } else {
+            dao.touch(hash, now)
+        }
+        target.absolutePath
+    }
+
+    // Deletes blobs no attachment references any more, with their thumbnails. Returns bytes freed.
+    suspend fun sweep(context: Context): Long = withContext(Dispatchers.IO) {
+        val dao = TodoDatabase.getDatabase(context).attachmentBlobDao()
+        val cutoff = System.currentTimeMillis() - RELEASE_GRACE_MS
+        var reclaimed = 0L
+        var deleted = 0
+        while (true) {
+            val released = dao.getReleased(cutoff, SWEEP_BATCH)
+            if (released.isEmpty()) break
+            val before = deleted
+            released.forEach { blob ->
+                lock.withLock {
+                    if (dao.deleteIfReleased(blob.hash, cutoff) > 0) {
+                        val file = File(blob.path)
+                        val size = file.length()
+                        if (file.delete()) reclaimed += size
+                        Thumbnails.SIZES.forEach { Thumbnails.file(context, blob.path, it).delete() }
+                        deleted++
+                    }
+                }
+            }
+            if (released.size < SWEEP_BATCH || deleted == before) break
+        }
+        if (deleted > 0) {
+            AppLogger.log(context, "AttachmentStore", "Released $deleted unreferenced images (${reclaimed / 1024} KB)")
+        }
+        reclaimed
+    }
+
+    private fun ByteArray.toHex(): String =
+        joinToString("") { "%02x".format(it) }
+}
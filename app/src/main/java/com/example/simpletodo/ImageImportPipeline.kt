@@ -0,0 +1,184 @@
+package com.example.simpletodo
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import android.graphics.Matrix
+import android.media.ExifInterface
+import android.net.Uri
+import android.os.SystemClock
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.async
+import kotlinx.coroutines.awaitAll
+import kotlinx.coroutines.coroutineScope
+import kotlinx.coroutines.sync.Semaphore
+import kotlinx.coroutines.sync.withPermit
+import kotlinx.coroutines.withContext
+import java.io.File
+import java.io.FileOutputStream
+import java.util.concurrent.atomic.AtomicInteger
+
+data class ImportProgress(val done: Int, val total: Int)
+
+// Imports picked images into AttachmentStore: decoded at a reduced sample size, scaled to a
+// maximum dimension, rotated per EXIF orientation and re-encoded. The written file carries no EXIF
+// (location, camera data). Identical images are stored once. A few images are processed in parallel on the IO dispatcher.
+object ImageImportPipeline {
+    private const val PREFS = "image_import"
+    private const val KEY_MAX_DIMENSION = "max_dimension"
+    private const val KEY_QUALITY = "quality"
+
+    const val DEFAULT_MAX_DIMENSION = 1600
+    const val DEFAULT_QUALITY = 85
+    private const val MAX_PARALLEL = 3 // Each decode holds a full bitmap; keep peak memory bounded
+
+    fun maxDimension(context: Context): Int =
+        prefs(context).getInt(KEY_MAX_DIMENSION, DEFAULT_MAX_DIMENSION)
+
+    fun quality(context: Context): Int =
+        prefs(context).getInt(KEY_QUALITY, DEFAULT_QUALITY)
+
+    fun configure(context: Context, maxDimension: Int, quality: Int) {
+        prefs(context).edit()
+            .putInt(KEY_MAX_DIMENSION, maxDimension.coerceIn(320, 8192))
+            .putInt(KEY_QUALITY, quality.coerceIn(30, 100))
+            .apply()
+    }
+
+    // Returns the stored paths in the order of `uris`, skipping images that could not be read
+    suspend fun import(
+        context: Context,
+        uris: List<Uri>,
+        onProgress: (ImportProgress) -> Unit = {}
+    ): List<String> = withContext(Dispatchers.IO) {
+        if (uris.isEmpty()) return@withContext emptyList()
+        val maxDimension = maxDimension(context)
+        val quality = quality(context)
+        val permits = Semaphore(MAX_PARALLEL)
+        val done = AtomicInteger(0)
+        onProgress(ImportProgress(0, uris.size))
+
+        coroutineScope {
+            uris.map { uri ->
+                async {
+                    permits.withPermit {
+                        val start = SystemClock.elapsedRealtime()
+                        val path = importOne(context, uri, maxDimension, quality)
+                        AppMetrics.record(context, "image.import", SystemClock.elapsedRealtime() - start)
+                        onProgress(ImportProgress(done.incrementAndGet(), uris.size))
+                        path
+                    }
+                }
+            }.awaitAll().filterNotNull()
+        }
+    }
+
+    // Streams the image into cacheDir while hashing it; an image already in the store is reused
+    // as-is, otherwise the staged copy is decoded, scaled and published under its hash
+    private suspend fun importOne(context: Context, uri: Uri, maxDimension: Int, quality: Int): String? {
+        val staged = try {
+            AttachmentStore.stage(context, uri)
+        } catch (e: Exception) {
+            e.printStackTrace()
+            null
+        } ?: return null
+
+        try {
+            AttachmentStore.lookup(context, staged.hash)?.let { existing ->
+                AppLogger.log(context, "ImageImport", "Already stored, reusing ${File(existing).name}")
+                return existing
+            }
+
+            val bitmap = try {
+                decodeScaled(staged.file, maxDimension)
+            } catch (e: Exception) {
+                e.printStackTrace()
+                null
+            }
+            if (bitmap == null) {
+                // Not decodable here (unusual format): keep the original bytes rather than lose it
+                AppLogger.log(context, "ImageImport", "Could not decode $uri, storing as-is")
+                return AttachmentStore.publish(context, staged.hash, staged.file, "orig")
+            }
+
+            val rotated = applyOrientation(bitmap, readOrientation(staged.file))
+            val format = if (rotated.hasAlpha()) Bitmap.CompressFormat.PNG else Bitmap.CompressFormat.JPEG
+            val extension = if (format == Bitmap.CompressFormat.PNG) "png" else "jpg"
+            // Written inside filesDir so publishing is a rename, not a copy. Uniquely named: the same
+            // image can be imported twice at once, and both must not write into one file.
+            val encoded = File.createTempFile(staged.hash, ".tmp", AttachmentStore.dir(context).apply { mkdirs() })
+            return try {
+                FileOutputStream(encoded).use { out -> rotated.compress(format, quality, out) }
+                val path = AttachmentStore.publish(context, staged.hash, encoded, extension) ?: return null
+                // Rows and the dialog only ever show these; optional, tiles fall back to the original
+                try {
+                    Thumbnails.generate(context, path, rotated)
+                } catch (e: Exception) {
+                    AppLogger.log(context, "ImageImport", "Thumbnails failed for ${File(path).name}: ${e.message}")
+                }
+                path
+            } catch (e: Exception) {
+                e.printStackTrace()
+                null
+            } finally {
+                encoded.delete()
+                rotated.recycle()
+            }
+        } finally {
+            staged.file.delete()
+        }
+    }
+
+    // Decodes with the largest power-of-two subsample that keeps the long edge >= maxDimension,
+    // then scales the rest of the way
+    private fun decodeScaled(file: File, maxDimension: Int): Bitmap? {
+        val bounds = BitmapFactory.Options().apply { inJustDecodeBounds = true }
+        BitmapFactory.decodeFile(file.path, bounds)
+        val longEdge = maxOf(bounds.outWidth, bounds.outHeight)
+        if (longEdge <= 0) return null
+
+        var sampleSize = 1
+        while (longEdge / (sampleSize * 2) >= maxDimension) sampleSize *= 2
+        val options = BitmapFactory.Options().apply { inSampleSize = sampleSize }
+        val decoded = BitmapFactory.decodeFile(file.path, options) ?: return null
+
+        val decodedLongEdge = maxOf(decoded.width, decoded.height)
+        if (decodedLongEdge <= maxDimension) return decoded
+        val scale = maxDimension.toFloat() / decodedLongEdge
+        val scaled = Bitmap.createScaledBitmap(
+            decoded,
+            (decoded.width * scale).toInt().coerceAtLeast(1),
+            (decoded.height * scale).toInt().coerceAtLeast(1),
+            true
+        )
+        if (scaled !== decoded) decoded.recycle()
+        return scaled
+    }
+
+    private fun readOrientation(file: File): Int = try {
+        ExifInterface(file.path).getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL)
+    } catch (e: Exception) {
+        ExifInterface.ORIENTATION_NORMAL
+    }
+
+    // Re-encoding drops the EXIF tag, so bake the orientation into the pixels
+    private fun applyOrientation(bitmap: Bitmap, orientation: Int): Bitmap {
+        val matrix = Matrix()
+        when (orientation) {
+            ExifInterface.ORIENTATION_ROTATE_90 -> matrix.postRotate(90f)
+            ExifInterface.ORIENTATION_ROTATE_180 -> matrix.postRotate(180f)
+            ExifInterface.ORIENTATION_ROTATE_270 -> matrix.postRotate(270f)
+            ExifInterface.ORIENTATION_FLIP_HORIZONTAL -> matrix.preScale(-1f, 1f)
+            ExifInterface.ORIENTATION_FLIP_VERTICAL -> matrix.preScale(1f, -1f)
+            ExifInterface.ORIENTATION_TRANSPOSE -> { matrix.postRotate(90f); matrix.preScale(-1f, 1f) }
+            ExifInterface.ORIENTATION_TRANSVERSE -> { matrix.postRotate(270f); matrix.preScale(-1f, 1f) }
+            else -> return bitmap
+        }
+        val rotated = Bitmap.createBitmap(bitmap, 0, 0, bitmap.width, bitmap.height, matrix, true)
+        if (rotated !== bitmap) bitmap.recycle()
+        return rotated
+    }
+
+    private fun prefs(context: Context) =
+        context.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+}
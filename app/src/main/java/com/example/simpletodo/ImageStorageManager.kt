@@ -2,27 +2,58 @@ package com.example.simpletodo
 
 import android.content.Context
 import android.net.Uri
+import android.os.ParcelFileDescriptor
+import android.system.ErrnoException
+import android.system.Os
+import android.system.OsConstants
 import java.io.File
-import java.io.FileOutputStream
-import java.util.UUID
+import java.io.FileNotFoundException
+import java.io.RandomAccessFile
 
 object ImageStorageManager {
-    fun copyImageToInternalStorage(context: Context, uri: Uri): String? {
-        return try {
-            val inputStream = context.contentResolver.openInputStream(uri) ?: return null
-            val fileName = "img_${UUID.randomUUID()}.jpg"
-            val file = File(context.filesDir, fileName)
-            val outputStream = FileOutputStream(file)
-            
-            inputStream.use { input ->
-                outputStream.use { output ->
-                    input.copyTo(output)
+    // transferFrom may move less than asked; cap each call so progress is steady on huge files
+    private const val TRANSFER_CHUNK = 8L * 1024 * 1024
+
+    // Kernel-side copy (FileChannel.transferFrom) into a preallocated destination. Null when the
+    // source has no usable descriptor (pipe-backed providers, unknown size); nothing is written then.
+    fun copyWithChannels(context: Context, uri: Uri, dest: File): Long? {
+        val pfd = try {
+            context.contentResolver.openFileDescriptor(uri, "r")
+        } catch (e: FileNotFoundException) {
+            null
+        } ?: return null
+
+        val size = pfd.statSize
+        if (size < 0) {
+            pfd.close()
+            return null
+        }
+        // The stream owns the descriptor from here and closes it exactly once
+        return ParcelFileDescriptor.AutoCloseInputStream(pfd).channel.use { source ->
+            RandomAccessFile(dest, "rw").use { out ->
+                preallocate(out, size)
+                val target = out.channel
+                var position = 0L
+                while (position < size) {
+                    val moved = target.transferFrom(source, position, minOf(TRANSFER_CHUNK, size - position))
+                    if (moved <= 0) break // Source shorter than its stat said
+                    position += moved
                 }
+                if (out.length() != position) out.setLength(position)
+                position
             }
-            file.absolutePath
-        } catch (e: Exception) {
-            e.printStackTrace()
-            null
+        }
+    }
+
+    // Reserves the blocks up front, so a full disk fails here (ENOSPC, rethrown) instead of
+    // halfway through the copy. setLength only where the filesystem has no fallocate.
+    private fun preallocate(file: RandomAccessFile, size: Long) {
+        if (size == 0L) return
+        try {
+            Os.posix_fallocate(file.fd, 0, size)
+        } catch (e: ErrnoException) {
+            if (e.errno != OsConstants.EOPNOTSUPP && e.errno != OsConstants.ENOSYS) throw e.rethrowAsIOException()
+            file.setLength(size)
         }
     }
 }
@@ -1,12 +1,20 @@
 package com.example.simpletodo
 
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 
-@Entity(tableName = "app_logs")
+@Entity(
+    tableName = "app_logs",
+    // v1.7: backs the viewer's ORDER BY and the retention pruning in LogRetention
+    indices = [Index(value = ["timestamp"])]
+)
 data class LogEntry(
     @PrimaryKey(autoGenerate = true) val id: Long = 0,
     val timestamp: Long = System.currentTimeMillis(),
     val tag: String,
     val message: String
 )
+
+// Position in the (timestamp, id) order, for row-limit pruning
+data class LogKey(val timestamp: Long, val id: Long)
@@ -0,0 +1,64 @@
+package com.example.simpletodo
+
+import android.content.Context
+import kotlinx.coroutines.yield
+
+// Keeps app_logs bounded by row count and age. Deletes run in small chunks
+// (one short transaction each) so log writers and the viewer are never blocked for long.
+object LogRetention {
+    private const val PREFS = "log_retention"
+    private const val KEY_MAX_ROWS = "max_rows"
+    private const val KEY_MAX_AGE_MILLIS = "max_age_millis"
+
+    const val DEFAULT_MAX_ROWS = 5_000
+    const val DEFAULT_MAX_AGE_MILLIS = 7 * 24 * 60 * 60 * 1000L
+    private const val DELETE_CHUNK = 500
+
+    fun maxRows(context: Context): Int =
+        prefs(context).getInt(KEY_MAX_ROWS, DEFAULT_MAX_ROWS)
+
+    fun maxAgeMillis(context: Context): Long =
+        prefs(context).getLong(KEY_MAX_AGE_MILLIS, DEFAULT_MAX_AGE_MILLIS)
+
+    fun configure(context: Context, maxRows: Int, maxAgeMillis: Long) {
+        prefs(context).edit()
+            .putInt(KEY_MAX_ROWS, maxRows.coerceAtLeast(1))
+            .putLong(KEY_MAX_AGE_MILLIS, maxAgeMillis.coerceAtLeast(0))
+            .apply()
+    }
+
+    // Returns the number of deleted rows
+    suspend fun prune(context: Context): Int {
+        val logDao = TodoDatabase.getDatabase(context).logDao()
+        var deleted = 0
+
+        // Age limit
+        val ageCutoff = System.currentTimeMillis() - maxAgeMillis(context)
+        deleted += deleteOlderThan(logDao, ageCutoff)
+
+        // Row limit: everything behind the newest maxRows entries. Keyed on (timestamp, id) so
+        // kept rows sharing the boundary's millisecond survive.
+        val newestDropped = logDao.getKeyAtOffset(maxRows(context))
+        if (newestDropped != null) {
+            deleted += deleteChunked { logDao.deleteUpTo(newestDropped.timestamp, newestDropped.id, it) }
+        }
+        return deleted
+    }
+
+    private suspend fun deleteOlderThan(logDao: LogDao, cutoff: Long): Int =
+        deleteChunked { logDao.deleteOlderThan(cutoff, it) }
+
+    private suspend fun deleteChunked(deleteChunk: suspend (Int) -> Int): Int {
+        var total = 0
+        while (true) {
+            val count = deleteChunk(DELETE_CHUNK)
+            total += count
+            if (count < DELETE_CHUNK) break
+            yield()
+        }
+        return total
+    }
+
+    private fun prefs(context: Context) =
+        context.applicationContext.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+}
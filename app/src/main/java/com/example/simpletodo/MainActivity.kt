@@ -3,7 +3,6 @@ package com.example.simpletodo
 import android.Manifest
 import android.app.AlarmManager
 import android.app.DatePickerDialog
-import android.app.PendingIntent
 import android.app.TimePickerDialog
 import android.content.Context
 import android.content.Intent
@@ -12,6 +11,7 @@ import android.net.Uri
 import android.os.Build
 import android.os.Bundle
 import android.os.PowerManager
+import android.os.SystemClock
 import android.provider.Settings
 import android.widget.Toast
 import androidx.compose.foundation.isSystemInDarkTheme
@@ -23,11 +23,23 @@ import androidx.compose.material.icons.filled.Delete
 import androidx.compose.material.icons.filled.Add
 
 import androidx.activity.ComponentActivity
+import androidx.compose.foundation.ExperimentalFoundationApi
+import androidx.compose.foundation.lazy.LazyColumn
+import androidx.compose.ui.graphics.RectangleShape
+import androidx.paging.Pager
+import androidx.paging.PagingConfig
+import androidx.paging.PagingData
+import androidx.paging.cachedIn
+import androidx.paging.compose.LazyPagingItems
+import androidx.paging.compose.collectAsLazyPagingItems
+import androidx.paging.compose.itemContentType
+import androidx.paging.compose.itemKey
 import androidx.activity.compose.rememberLauncherForActivityResult
 import androidx.activity.compose.setContent
 import androidx.activity.result.contract.ActivityResultContracts
 import androidx.compose.foundation.background
 import androidx.compose.foundation.clickable
+import androidx.compose.foundation.combinedClickable
 import androidx.compose.foundation.layout.*
 import androidx.compose.foundation.rememberScrollState
 import androidx.compose.foundation.shape.RoundedCornerShape
@@ -59,13 +71,29 @@ import androidx.lifecycle.ViewModel
 import androidx.lifecycle.ViewModelProvider
 import androidx.lifecycle.viewModelScope
 import coil.compose.AsyncImage
+import coil.imageLoader
+import coil.memory.MemoryCache
+import coil.request.ImageRequest
+import kotlinx.coroutines.CancellationException
+import kotlinx.coroutines.Dispatchers
+import kotlinx.coroutines.ExperimentalCoroutinesApi
+import kotlinx.coroutines.delay
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.drop
+import kotlinx.coroutines.flow.flatMapLatest
 import kotlinx.coroutines.flow.MutableStateFlow
 import kotlinx.coroutines.flow.StateFlow
 import kotlinx.coroutines.flow.asStateFlow
 import kotlinx.coroutines.flow.collectLatest
+import kotlinx.coroutines.flow.flowOf
+import kotlinx.coroutines.flow.map
 import kotlinx.coroutines.launch
+import kotlinx.coroutines.sync.Mutex
+import kotlinx.coroutines.sync.withLock
+import kotlinx.coroutines.withContext
 import java.io.File
 import java.text.SimpleDateFormat
+import java.time.DayOfWeek
 import java.util.*
 
 class MainActivity : ComponentActivity() {
@@ -83,6 +111,7 @@ class MainActivity : ComponentActivity() {
 
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
+        AppRuntime.noteActivityCreated()
         
         database = TodoDatabase.getDatabase(this)
         val repository = TodoRepository(database.todoDao(), database.logDao())
@@ -91,6 +120,14 @@ class MainActivity : ComponentActivity() {
         checkPermissions()
         checkBatteryOptimization()
 
+        // Catch up on anything missed while we weren't running (force-stop, missed broadcasts).
+        // Not on recreation (rotation etc.), nothing can have changed underneath us then.
+        if (savedInstanceState == null) {
+            AppRuntime.scope.launch {
+                AlarmScheduler.reconcile(applicationContext, "app start")
+            }
+        }
+
         setContent {
             SimpleTodoTheme {
                 Surface(modifier = Modifier.fillMaxSize(), color = MaterialTheme.colorScheme.background) {
@@ -187,16 +224,90 @@ fun SimpleTodoTheme(content: @Composable () -> Unit) {
 // --- ViewModel ---
 
 class TodoViewModel(private val repository: TodoRepository, private val context: Context) : ViewModel() {
-    private val _todos = MutableStateFlow<List<TodoItem>>(emptyList())
-    val todos: StateFlow<List<TodoItem>> = _todos.asStateFlow()
+    // Bucket boundaries are relative to this anchor; refreshed periodically so tasks roll into nearer buckets
+    private val listAnchor = MutableStateFlow(System.currentTimeMillis())
+
+    // Bucket headers and counts. Seeded once, then patched on Dispatchers.Default from the
+    // todo_changes feed, so a single-row write costs O(changes) rather than a full requery.
+    private val pendingIndex = PendingDueIndex()
+    private val pendingIndexLock = Mutex()
+    private val _listModel = MutableStateFlow(TaskListModel.loading(listAnchor.value))
+    val listModel: StateFlow<TaskListModel> = _listModel.asStateFlow()
+
+    // One pager per bucket; rows are loaded page by page as the LazyColumn scrolls
+    @OptIn(ExperimentalCoroutinesApi::class)
+    val pagedBuckets: Map<TaskBucket, Flow<PagingData<TodoItem>>> = TaskBucket.values().associateWith { bucket ->
+        listAnchor.flatMapLatest { anchor ->
+            repository.pagedPending(bucket.from(anchor), bucket.to(anchor))
+        }.cachedIn(viewModelScope)
+    }
 
     private val _logs = MutableStateFlow<List<LogEntry>>(emptyList())
     val logs: StateFlow<List<LogEntry>> = _logs.asStateFlow()
 
+    private val _selectedIds = MutableStateFlow<Set<Long>>(emptySet())
+    val selectedIds: StateFlow<Set<Long>> = _selectedIds.asStateFlow()
+
+    private val _logCount = MutableStateFlow(0)
+    val logCount: StateFlow<Int> = _logCount.asStateFlow()
+
+    // Stats shown above the log list, read from prefs on IO. Every recorded hold / run also logs
+    // a line, so they are re-read whenever the row count moves. Only the log viewer collects this.
+    data class Diagnostics(
+        val wakeLocks: List<AppMetrics.Summary>,
+        val wakeLockTimeouts: Map<String, Long>,
+        val latency: List<AppMetrics.Summary>,
+        val maintenance: MaintenanceStats.Snapshot?
+    )
+
+    fun diagnostics(): Flow<Diagnostics> = logCount.map {
+        withContext(Dispatchers.IO) {
+            val wakeLocks = WakeLockManager.summaries(context)
+            Diagnostics(
+                wakeLocks = wakeLocks,
+                wakeLockTimeouts = wakeLocks.associate { stat ->
+                    val action = stat.name.substringAfter('.')
+                    action to WakeLockManager.timeoutFor(context, action)
+                },
+                latency = AppRuntime.LATENCY_METRICS.mapNotNull { AppMetrics.summary(context, it) },
+                maintenance = MaintenanceStats.snapshot(context)
+            )
+        }
+    }
+
+    // Image import progress of the save in flight, null when idle
+    private val _importProgress = MutableStateFlow<ImportProgress?>(null)
+    val importProgress: StateFlow<ImportProgress?> = _importProgress.asStateFlow()
+
     init {
         viewModelScope.launch {
-            repository.allTodos.collectLatest {
-                _todos.value = it
+            while (true) {
+                delay(ANCHOR_REFRESH_MS)
+                listAnchor.value = System.currentTimeMillis()
+            }
+        }
+        viewModelScope.launch(Dispatchers.Default) {
+            // Read the feed position before the snapshot: changes in between are replayed, which is idempotent
+            val startSeq = repository.changeFeed.latestSeq()
+            pendingIndexLock.withLock {
+                pendingIndex.reset(listAnchor.value, repository.getPendingDueStates())
+                _listModel.value = pendingIndex.toModel()
+            }
+            launch {
+                listAnchor.drop(1).collect { anchor ->
+                    pendingIndexLock.withLock {
+                        pendingIndex.reanchor(anchor)
+                        _listModel.value = pendingIndex.toModel()
+                    }
+                }
+            }
+            repository.changeFeed.changesSince(startSeq).collect { changes ->
+                val states = repository.getDueStates(changes.touched.toList())
+                pendingIndexLock.withLock {
+                    pendingIndex.apply(changes, states)
+                    // StateFlow skips equal models, e.g. for a remindCount-only update
+                    _listModel.value = pendingIndex.toModel()
+                }
             }
         }
         viewModelScope.launch {
@@ -204,13 +315,18 @@ class TodoViewModel(private val repository: TodoRepository, private val context:
                 _logs.value = it
             }
         }
-    }
-
-    fun addTodo(name: String, timeInMillis: Long, repeatMode: Int, remarks: String, imageUris: List<Uri>, maxRetries: Int, retryIntervalHours: Int) {
         viewModelScope.launch {
-            val imagePaths = imageUris.mapNotNull { uri ->
-                ImageStorageManager.copyImageToInternalStorage(context, uri)
+            repository.logCount.collectLatest {
+                _logCount.value = it
             }
+        }
+    }
+
+    // onDone(saved) always runs, also when the save fails
+    fun addTodo(name: String, timeInMillis: Long, repeatMode: Int, remarks: String, imageUris: List<Uri>, maxRetries: Int, retryIntervalHours: Int, onDone: (Boolean) -> Unit = {}) {
+        launchSave(onDone) {
+            val start = SystemClock.elapsedRealtime()
+            val imagePaths = importImages(imageUris)
             
             val item = TodoItem(
                 name = name, 
@@ -218,37 +334,79 @@ class TodoViewModel(private val repository: TodoRepository, private val context:
                 // isMonthly deprecated, use repeatMode. 0=None, 1=Weekly, 2=Monthly
                 repeatMode = repeatMode,
                 isMonthly = repeatMode == 2, 
+                recurrence = RecurrenceRule.forRepeatMode(repeatMode, timeInMillis)?.format(),
                 remarks = remarks,
-                imagePaths = imagePaths,
                 maxRetries = maxRetries,
                 retryIntervalHours = retryIntervalHours
             )
-            val id = repository.insert(item)
+            val id = repository.insertWithAttachments(item, imagePaths)
             AppLogger.log(context, "TodoViewModel", "Added new todo: $name (ID: $id)")
-            scheduleAlarm(context, id, timeInMillis)
+            AlarmScheduler.schedule(context, id, timeInMillis)
+            AppMetrics.record(context, "todo.save", SystemClock.elapsedRealtime() - start)
         }
     }
 
-    fun updateTodo(todo: TodoItem, name: String, timeInMillis: Long, repeatMode: Int, remarks: String, imageUris: List<Uri>, maxRetries: Int, retryIntervalHours: Int) {
-        viewModelScope.launch {
+    fun updateTodo(todo: TodoItem, name: String, timeInMillis: Long, repeatMode: Int, remarks: String, imageUris: List<Uri>, maxRetries: Int, retryIntervalHours: Int, onDone: (Boolean) -> Unit = {}) {
+        launchSave(onDone) {
+            val start = SystemClock.elapsedRealtime()
             // Process new images if any
-            val newImagePaths = imageUris.mapNotNull { uri ->
-                ImageStorageManager.copyImageToInternalStorage(context, uri)
-            }
+            val newImagePaths = importImages(imageUris)
             
             val updated = todo.copy(
                 name = name,
                 timeInMillis = timeInMillis,
                 repeatMode = repeatMode,
                 isMonthly = repeatMode == 2,
+                // Keep the stored rule (e.g. a migrated BYMONTHDAY) unless the repeat mode or due time was edited
+                recurrence = if (repeatMode == todo.repeatMode && timeInMillis == todo.timeInMillis && todo.recurrence != null) {
+                    todo.recurrence
+                } else {
+                    RecurrenceRule.forRepeatMode(repeatMode, timeInMillis)?.format()
+                },
                 remarks = remarks,
-                imagePaths = todo.imagePaths + newImagePaths, // Append new images
                 maxRetries = maxRetries,
                 retryIntervalHours = retryIntervalHours
             )
-            repository.update(updated)
-            scheduleAlarm(context, updated.id, timeInMillis)
+            repository.updateWithAttachments(updated, newImagePaths) // Appends new images
+
+            AlarmScheduler.schedule(context, updated.id, timeInMillis)
             AppLogger.log(context, "TodoViewModel", "Updated todo: ${updated.name}")
+            AppMetrics.record(context, "todo.save", SystemClock.elapsedRealtime() - start)
+        }
+    }
+
+    private fun launchSave(onDone: (Boolean) -> Unit, save: suspend () -> Unit) {
+        viewModelScope.launch {
+            var saved = false
+            try {
+                save()
+                saved = true
+            } catch (e: CancellationException) {
+                throw e
+            } catch (e: Exception) {
+                AppLogger.log(context, "TodoViewModel", "Save failed: ${e.message}")
+                e.printStackTrace()
+            } finally {
+                onDone(saved)
+            }
+        }
+    }
+
+    // Downscaled, re-encoded copies of the picked images; progress is published for the dialog
+    private suspend fun importImages(uris: List<Uri>): List<String> {
+        if (uris.isEmpty()) return emptyList()
+        return try {
+            ImageImportPipeline.import(context, uris) { _importProgress.value = it }
+        } finally {
+            _importProgress.value = null
+        }
+    }
+
+    // Attachment paths for one todo; only collected by an expanded row or the edit dialog
+    fun attachmentPaths(todoId: Long?): Flow<List<String>> {
+        if (todoId == null) return flowOf(emptyList())
+        return repository.todoWithAttachments(todoId).map { withAttachments ->
+            withAttachments?.attachments.orEmpty().sortedBy { it.position }.map { it.path }
         }
     }
 
@@ -256,99 +414,140 @@ class TodoViewModel(private val repository: TodoRepository, private val context:
         viewModelScope.launch {
             repository.delete(todo)
             AppLogger.log(context, "TodoViewModel", "Deleted todo: ${todo.name}")
-            cancelAlarm(context, todo.id)
+            AlarmScheduler.cancel(context, todo.id)
+            AttachmentStore.sweep(context)
         }
     }
 
     fun markDone(todo: TodoItem) {
         viewModelScope.launch {
-            if (todo.repeatMode > 0 || todo.isMonthly) {
-                val calendar = Calendar.getInstance()
-                calendar.timeInMillis = todo.timeInMillis
-                
-                if (todo.repeatMode == 1) {
-                     calendar.add(Calendar.DAY_OF_YEAR, 7) // Weekly
-                } else {
-                     calendar.add(Calendar.MONTH, 1) // Monthly (Default or repeatMode 2)
-                }
-                
-                val nextTime = calendar.timeInMillis
+            val rule = recurrenceOf(todo)
+            if (rule != null) {
+                val nextTime = RecurrenceEngine.nextAfter(rule, todo.timeInMillis, System.currentTimeMillis())
                 val updated = todo.copy(timeInMillis = nextTime, remindCount = 0, isDone = false)
                 repository.update(updated)
-                scheduleAlarm(context, updated.id, nextTime)
+                AlarmScheduler.schedule(context, updated.id, nextTime)
                 AppLogger.log(context, "TodoViewModel", "Marked recurring done: ${todo.name}, rescheduled to ${Date(nextTime)}")
             } else {
                 val updated = todo.copy(isDone = !todo.isDone) // Toggle logic
                 repository.update(updated)
                 if (updated.isDone) {
-                    cancelAlarm(context, todo.id)
+                    AlarmScheduler.cancel(context, todo.id)
                     AppLogger.log(context, "TodoViewModel", "Marked done: ${todo.name}")
                 } else {
-                    scheduleAlarm(context, todo.id, todo.timeInMillis)
+                    AlarmScheduler.schedule(context, todo.id, todo.timeInMillis)
                     AppLogger.log(context, "TodoViewModel", "Marked undone: ${todo.name}")
                 }
             }
         }
     }
     
-    fun clearLogs() {
+    // --- Multi-select ---
+
+    fun toggleSelection(id: Long) {
+        val current = _selectedIds.value
+        _selectedIds.value = if (id in current) current - id else current + id
+    }
+
+    fun clearSelection() {
+        _selectedIds.value = emptySet()
+    }
+
+    private fun takeSelection(): List<Long> {
+        val ids = _selectedIds.value.toList()
+        _selectedIds.value = emptySet()
+        return ids
+    }
+
+    fun markSelectedDone() {
+        val ids = takeSelection()
+        if (ids.isEmpty()) return
         viewModelScope.launch {
-            repository.clearLogs()
+            val todos = repository.getTodosByIds(ids)
+            val now = System.currentTimeMillis()
+            val (recurring, oneOff) = todos.partition { recurrenceOf(it) != null }
+            val rolled = recurring.map {
+                val nextTime = RecurrenceEngine.nextAfter(recurrenceOf(it)!!, it.timeInMillis, now)
+                it.copy(timeInMillis = nextTime, remindCount = 0, isDone = false)
+            }
+            repository.completeBulk(oneOff.map { it.id }, rolled)
+
+            AlarmScheduler.update(
+                context,
+                schedule = rolled.map { ScheduledAlarm(it.id, it.timeInMillis) },
+                cancel = oneOff.map { it.id }
+            )
+            AppLogger.log(context, "TodoViewModel", "Bulk done: ${oneOff.size} completed, ${rolled.size} recurring rescheduled")
         }
     }
-    
-    private fun scheduleAlarm(context: Context, id: Long, timeInMillis: Long) {
-        val alarmManager = context.getSystemService(AlarmManager::class.java)
-        val intent = Intent(context, ReminderReceiver::class.java).apply {
-            action = ReminderReceiver.ACTION_REMINDER
-            putExtra(ReminderReceiver.EXTRA_ID, id)
-        }
-        val pendingIntent = PendingIntent.getBroadcast(
-            context,
-            id.toInt(),
-            intent,
-            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
-        )
 
-        AppLogger.log(context, "TodoViewModel", "Scheduling alarm for ID $id at ${Date(timeInMillis)}")
+    fun deleteSelected() {
+        val ids = takeSelection()
+        if (ids.isEmpty()) return
+        viewModelScope.launch {
+            val deleted = repository.deleteByIds(ids)
+            AlarmScheduler.update(context, cancel = ids)
+            AppLogger.log(context, "TodoViewModel", "Bulk deleted $deleted todos")
+            AttachmentStore.sweep(context)
+        }
+    }
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-            if (alarmManager.canScheduleExactAlarms()) {
-                 alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, timeInMillis, pendingIntent)
-            } else {
-                 AppLogger.log(context, "TodoViewModel", "Cannot schedule exact alarm! Using inexact.")
-                 alarmManager.setAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, timeInMillis, pendingIntent)
-            }
-        } else {
-             alarmManager.setExactAndAllowWhileIdle(AlarmManager.RTC_WAKEUP, timeInMillis, pendingIntent)
+    fun rescheduleSelected(timeInMillis: Long) {
+        val ids = takeSelection()
+        if (ids.isEmpty()) return
+        viewModelScope.launch {
+            val updated = repository.rescheduleByIds(ids, timeInMillis)
+            AlarmScheduler.update(context, schedule = ids.map { ScheduledAlarm(it, timeInMillis) })
+            AppLogger.log(context, "TodoViewModel", "Bulk rescheduled $updated todos to ${Date(timeInMillis)}")
         }
     }
-    
-    private fun cancelAlarm(context: Context, id: Long) {
-        val alarmManager = context.getSystemService(AlarmManager::class.java)
-        val intent = Intent(context, ReminderReceiver::class.java)
-        intent.action = ReminderReceiver.ACTION_REMINDER
-        
-        val pendingIntent = PendingIntent.getBroadcast(
-            context,
-            id.toInt(),
-            intent,
-            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
-        )
-        alarmManager.cancel(pendingIntent)
-        AppLogger.log(context, "TodoViewModel", "Cancelled alarm for ID $id")
+
+    private fun recurrenceOf(todo: TodoItem): RecurrenceRule? =
+        RecurrenceRule.of(todo.recurrence, todo.repeatMode, todo.isMonthly, todo.timeInMillis)
+
+    fun clearLogs() {
+        viewModelScope.launch {
+            repository.clearLogs()
+        }
     }
+
+    companion object {
+        // Buckets are days wide, so re-anchoring (and re-creating the pagers) every 15 minutes is plenty
+        private const val ANCHOR_REFRESH_MS = 15 * 60 * 1000L
+    }
+
 }
 
 class TodoRepository(private val dao: TodoDao, private val logDao: LogDao) {
-    val allTodos = dao.getAllTodos()
     val allLogs = logDao.getAllLogs()
+    val changeFeed = TodoChangeFeed(dao)
+    val logCount = logDao.getLogCount()
+
+    fun pagedPending(from: Long, to: Long): Flow<PagingData<TodoItem>> =
+        Pager(PagingConfig(pageSize = PAGE_SIZE, enablePlaceholders = true)) {
+            dao.pagePendingBetween(from, to)
+        }.flow
     
     suspend fun insert(todo: TodoItem) = dao.insert(todo)
     suspend fun update(todo: TodoItem) = dao.update(todo)
     suspend fun delete(todo: TodoItem) = dao.delete(todo)
+
+    suspend fun getPendingDueStates() = dao.getPendingDueStates()
+    suspend fun getDueStates(ids: List<Long>) = dao.getDueStates(ids)
+    suspend fun getTodosByIds(ids: List<Long>) = dao.getTodosByIds(ids)
+    suspend fun deleteByIds(ids: List<Long>) = dao.deleteByIds(ids)
+    suspend fun rescheduleByIds(ids: List<Long>, timeInMillis: Long) = dao.rescheduleByIds(ids, timeInMillis)
+    suspend fun completeBulk(doneIds: List<Long>, rolledForward: List<TodoItem>) = dao.completeBulk(doneIds, rolledForward)
+
+    fun todoWithAttachments(id: Long) = dao.getTodoWithAttachments(id)
+    suspend fun insertWithAttachments(todo: TodoItem, imagePaths: List<String>) = dao.insertWithAttachments(todo, imagePaths)
+    suspend fun updateWithAttachments(todo: TodoItem, newImagePaths: List<String>) = dao.updateWithAttachments(todo, newImagePaths)
     
     suspend fun clearLogs() = logDao.clearLogs()
+
+    companion object {
+        const val PAGE_SIZE = 40
+    }
 }
 
 class TodoViewModelFactory(private val repository: TodoRepository, private val context: Context) : ViewModelProvider.Factory {
@@ -366,10 +565,18 @@ class TodoViewModelFactory(private val repository: TodoRepository, private val c
 @OptIn(ExperimentalMaterial3Api::class)
 @Composable
 fun TodoApp(viewModel: TodoViewModel) {
-    val todos by viewModel.todos.collectAsState()
     var showDialog by remember { mutableStateOf(false) }
+    // Set on the Save tap, before any suspension, so a second tap can't insert the todo twice
+    var saving by remember { mutableStateOf(false) }
+    // Bumped per save and on dismiss, so a save finishing after its dialog was closed can't
+    // close or unlock the next one
+    var saveId by remember { mutableStateOf(0) }
+    val context = LocalContext.current
     var editTodo by remember { mutableStateOf<TodoItem?>(null) }
     var showLogs by remember { mutableStateOf(false) }
+    var showQuietHours by remember { mutableStateOf(false) }
+    var showSettings by remember { mutableStateOf(false) }
+    val selectedIds by viewModel.selectedIds.collectAsState()
 
     if (showLogs) {
         LogViewerScreen(
@@ -379,43 +586,53 @@ fun TodoApp(viewModel: TodoViewModel) {
     } else {
         Scaffold(
             topBar = {
-                // Compact Top Bar with integrated Warning and Actions
-                Surface(
-                    color = MaterialTheme.colorScheme.background,
-                    shadowElevation = 4.dp
-                ) {
-                    Column {
-                        Row(
-                            modifier = Modifier
-                                .fillMaxWidth()
-                                .padding(horizontal = 16.dp, vertical = 8.dp),
-                            verticalAlignment = Alignment.CenterVertically,
-                            horizontalArrangement = Arrangement.SpaceBetween
-                        ) {
-                             // Title/Hint Area
-                             Row(verticalAlignment = Alignment.CenterVertically, modifier = Modifier.weight(1f)) {
-                                 if (Build.MANUFACTURER.equals("Xiaomi", ignoreCase = true)) {
-                                     Icon(Icons.Default.Warning, contentDescription = null, tint = MaterialTheme.colorScheme.error, modifier = Modifier.size(16.dp))
-                                     Spacer(modifier = Modifier.width(4.dp))
-                                     Text(
-                                         "Xiaomi: Enable Autostart",
-                                         style = MaterialTheme.typography.labelMedium,
-                                         color = MaterialTheme.colorScheme.error,
-                                         maxLines = 1,
-                                         overflow = TextOverflow.Ellipsis
-                                     )
-                                 } else {
-                                     Text(
-                                         "SimpleTodo",
-                                         style = MaterialTheme.typography.titleMedium.copy(fontWeight = FontWeight.Bold)
-                                     )
+                if (selectedIds.isNotEmpty()) {
+                    SelectionTopBar(count = selectedIds.size, viewModel = viewModel)
+                } else {
+                    // Compact Top Bar with integrated Warning and Actions
+                    Surface(
+                        color = MaterialTheme.colorScheme.background,
+                        shadowElevation = 4.dp
+                    ) {
+                        Column {
+                            Row(
+                                modifier = Modifier
+                                    .fillMaxWidth()
+                                    .padding(horizontal = 16.dp, vertical = 8.dp),
+                                verticalAlignment = Alignment.CenterVertically,
+                                horizontalArrangement = Arrangement.SpaceBetween
+                            ) {
+                                 // Title/Hint Area
+                                 Row(verticalAlignment = Alignment.CenterVertically, modifier = Modifier.weight(1f)) {
+                                     if (Build.MANUFACTURER.equals("Xiaomi", ignoreCase = true)) {
+                                         Icon(Icons.Default.Warning, contentDescription = null, tint = MaterialTheme.colorScheme.error, modifier = Modifier.size(16.dp))
+                                         Spacer(modifier = Modifier.width(4.dp))
+                                         Text(
+                                             "Xiaomi: Enable Autostart",
+                                             style = MaterialTheme.typography.labelMedium,
+                                             color = MaterialTheme.colorScheme.error,
+                                             maxLines = 1,
+                                             overflow = TextOverflow.Ellipsis
+                                         )
+                                     } else {
+                                         Text(
+                                             "SimpleTodo",
+                                             style = MaterialTheme.typography.titleMedium.copy(fontWeight = FontWeight.Bold)
+                                         )
+                                     }
                                  }
-                             }
                              
-                             // Actions
-                             IconButton(onClick = { showLogs = true }, modifier = Modifier.size(32.dp)) {
-                                Icon(Icons.Default.Info, contentDescription = "Logs", tint = MaterialTheme.colorScheme.onSurface)
-                             }
+                                 // Actions
+                                 IconButton(onClick = { showQuietHours = true }, modifier = Modifier.size(32.dp)) {
+                                    Icon(Icons.Default.Notifications, contentDescription = "Quiet hours", tint = MaterialTheme.colorScheme.onSurface)
+                                 }
+                                 IconButton(onClick = { showSettings = true }, modifier = Modifier.size(32.dp)) {
+                                    Icon(Icons.Default.Settings, contentDescription = "Settings", tint = MaterialTheme.colorScheme.onSurface)
+                                 }
+                                 IconButton(onClick = { showLogs = true }, modifier = Modifier.size(32.dp)) {
+                                    Icon(Icons.Default.Info, contentDescription = "Logs", tint = MaterialTheme.colorScheme.onSurface)
+                                 }
+                            }
                         }
                     }
                 }
@@ -435,7 +652,6 @@ fun TodoApp(viewModel: TodoViewModel) {
             }
         ) { padding ->
             TaskListScreen(
-                todos = todos, 
                 viewModel = viewModel, 
                 padding = padding, 
                 onEdit = { todo ->
@@ -444,17 +660,50 @@ fun TodoApp(viewModel: TodoViewModel) {
                 }
             )
 
+            if (showQuietHours) {
+                QuietHoursDialog(onDismiss = { showQuietHours = false })
+            }
+
+            if (showSettings) {
+                SettingsDialog(onDismiss = { showSettings = false })
+            }
+
             if (showDialog) {
+                val existingImages by remember(editTodo?.id) {
+                    viewModel.attachmentPaths(editTodo?.id)
+                }.collectAsState(initial = emptyList())
+                val importProgress by viewModel.importProgress.collectAsState()
+
                 AddEditTodoDialog(
                     todo = editTodo,
-                    onDismiss = { showDialog = false },
+                    existingImages = existingImages,
+                    importProgress = importProgress,
+                    saving = saving,
+                    onDismiss = {
+                        saveId++
+                        saving = false
+                        showDialog = false
+                    },
                     onConfirm = { name, time, repeatMode, remarks, images, maxRetries, retryInterval ->
+                        if (saving) return@AddEditTodoDialog
+                        saving = true
+                        val id = ++saveId
+                        // Stays open (showing import progress) until the save lands
+                        val onDone = { saved: Boolean ->
+                            if (id == saveId) {
+                                saving = false
+                                if (saved) {
+                                    showDialog = false
+                                } else {
+                                    Toast.makeText(context, "Save failed", Toast.LENGTH_SHORT).show()
+                                }
+                            }
+                        }
                         if (editTodo == null) {
-                            viewModel.addTodo(name, time, repeatMode, remarks, images, maxRetries, retryInterval)
+                            viewModel.addTodo(name, time, repeatMode, remarks, images, maxRetries, retryInterval, onDone)
                         } else {
-                            viewModel.updateTodo(editTodo!!, name, time, repeatMode, remarks, images, maxRetries, retryInterval)
+                            viewModel.updateTodo(editTodo!!, name, time, repeatMode, remarks, images, maxRetries, retryInterval, onDone)
                         }
-                        showDialog = false
                     }
                 )
             }
@@ -462,74 +711,179 @@ fun TodoApp(viewModel: TodoViewModel) {
     }
 }
 
+// Replaces the top bar while tasks are selected (long-press a row to start)
 @Composable
-fun TaskListScreen(todos: List<TodoItem>, viewModel: TodoViewModel, padding: PaddingValues, onEdit: (TodoItem) -> Unit) {
-    val now = System.currentTimeMillis()
-    val threeDays = 3 * 24 * 60 * 60 * 1000L
-    val sevenDays = 7 * 24 * 60 * 60 * 1000L
+fun SelectionTopBar(count: Int, viewModel: TodoViewModel) {
+    val context = LocalContext.current
+    var showDeleteConfirm by remember { mutableStateOf(false) }
 
-    // Categorize
-    val within3Days = todos.filter { !it.isDone && it.timeInMillis <= now + threeDays }.sortedBy { it.timeInMillis }
-    val next7Days = todos.filter { !it.isDone && it.timeInMillis > now + threeDays && it.timeInMillis <= now + sevenDays }.sortedBy { it.timeInMillis }
-    val further = todos.filter { !it.isDone && it.timeInMillis > now + sevenDays }.sortedBy { it.timeInMillis }
-    
-    Column(modifier = Modifier.padding(padding).fillMaxSize().verticalScroll(rememberScrollState())) {
-        // Warning Banner removed from here as it's moved to TopBar
-        
-        if (within3Days.isNotEmpty()) {
-            TaskGroupCard(title = "Within 3 Days", tasks = within3Days, viewModel = viewModel, onEdit = onEdit)
-        }
-        
-        if (next7Days.isNotEmpty()) {
-            TaskGroupCard(title = "Next 7 Days", tasks = next7Days, viewModel = viewModel, onEdit = onEdit)
+    if (showDeleteConfirm) {
+        AlertDialog(
+            onDismissRequest = { showDeleteConfirm = false },
+            title = { Text("删除任务") },
+            text = { Text("确定要删除选中的 $count 个任务吗？") },
+            confirmButton = {
+                Button(
+                    onClick = {
+                        viewModel.deleteSelected()
+                        showDeleteConfirm = false
+                    },
+                    colors = ButtonDefaults.buttonColors(containerColor = MaterialTheme.colorScheme.error)
+                ) {
+                    Text("删除")
+                }
+            },
+            dismissButton = {
+                TextButton(onClick = { showDeleteConfirm = false }) {
+                    Text("取消")
+                }
+            }
+        )
+    }
+
+    Surface(
+        color = MaterialTheme.colorScheme.primaryContainer,
+        shadowElevation = 4.dp
+    ) {
+        Row(
+            modifier = Modifier
+                .fillMaxWidth()
+                .padding(horizontal = 8.dp, vertical = 4.dp),
+            verticalAlignment = Alignment.CenterVertically
+        ) {
+            IconButton(onClick = { viewModel.clearSelection() }) {
+                Icon(Icons.Default.Close, contentDescription = "Clear Selection")
+            }
+            Text(
+                "$count selected",
+                style = MaterialTheme.typography.titleMedium,
+                modifier = Modifier.weight(1f)
+            )
+            IconButton(onClick = { viewModel.markSelectedDone() }) {
+                Icon(Icons.Default.Check, contentDescription = "Mark Done")
+            }
+            IconButton(onClick = {
+                showDateTimePicker(context, System.currentTimeMillis()) { viewModel.rescheduleSelected(it) }
+            }) {
+                Icon(Icons.Default.DateRange, contentDescription = "Reschedule")
+            }
+            IconButton(onClick = { showDeleteConfirm = true }) {
+                Icon(Icons.Default.Delete, contentDescription = "Delete")
+            }
         }
-        
-        if (further.isNotEmpty()) {
-            TaskGroupCard(title = "Further", tasks = further, viewModel = viewModel, onEdit = onEdit)
+    }
+}
+
+// Date picker followed by a time picker
+fun showDateTimePicker(context: Context, initialTime: Long, onPicked: (Long) -> Unit) {
+    val calendar = Calendar.getInstance().apply { timeInMillis = initialTime }
+    DatePickerDialog(context, { _, y, m, d ->
+        calendar.set(Calendar.YEAR, y); calendar.set(Calendar.MONTH, m); calendar.set(Calendar.DAY_OF_MONTH, d)
+        TimePickerDialog(context, { _, h, min ->
+            calendar.set(Calendar.HOUR_OF_DAY, h); calendar.set(Calendar.MINUTE, min); calendar.set(Calendar.SECOND, 0)
+            onPicked(calendar.timeInMillis)
+        }, calendar.get(Calendar.HOUR_OF_DAY), calendar.get(Calendar.MINUTE), true).show()
+    }, calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH)).show()
+}
+
+@OptIn(ExperimentalFoundationApi::class)
+@Composable
+fun TaskListScreen(viewModel: TodoViewModel, padding: PaddingValues, onEdit: (TodoItem) -> Unit) {
+    val model by viewModel.listModel.collectAsState()
+    val pagedItems = TaskBucket.values().associateWith { bucket ->
+        viewModel.pagedBuckets.getValue(bucket).collectAsLazyPagingItems()
+    }
+    val selectedIds by viewModel.selectedIds.collectAsState()
+
+    LazyColumn(
+        modifier = Modifier.padding(padding).fillMaxSize(),
+        contentPadding = PaddingValues(bottom = 80.dp) // Space for FAB
+    ) {
+        model.sections.forEach { section ->
+            val bucket = section.bucket
+            val tasks = pagedItems.getValue(bucket)
+            if (section.count > 0 && tasks.itemCount > 0) {
+                stickyHeader(key = bucket.name, contentType = "header") {
+                    TaskGroupHeader(title = bucket.title, count = section.count)
+                }
+                items(
+                    count = tasks.itemCount,
+                    // Prefixed with the bucket: a task moving between buckets may briefly be in two pagers
+                    key = tasks.itemKey { "${bucket.name}:${it.id}" },
+                    contentType = tasks.itemContentType { "task" }
+                ) { index ->
+                    TaskGroupRow(tasks, index, viewModel, selectedIds, onEdit)
+                }
+            }
         }
-        
-        if (within3Days.isEmpty() && next7Days.isEmpty() && further.isEmpty()) {
-             Box(modifier = Modifier.fillMaxWidth().height(200.dp), contentAlignment = Alignment.Center) {
-                Text("No pending tasks", color = Color.Gray)
-             }
+
+        if (model.isEmpty) {
+            item(key = "empty", contentType = "empty") {
+                Box(modifier = Modifier.fillMaxWidth().height(200.dp), contentAlignment = Alignment.Center) {
+                    Text("No pending tasks", color = Color.Gray)
+                }
+            }
         }
-        
-        Spacer(modifier = Modifier.height(80.dp)) // Space for FAB
     }
 }
 
 @Composable
-fun TaskGroupCard(title: String, tasks: List<TodoItem>, viewModel: TodoViewModel, onEdit: (TodoItem) -> Unit) {
-    Column(modifier = Modifier.padding(horizontal = 16.dp, vertical = 8.dp)) {
-        // Header
-        Row(verticalAlignment = Alignment.CenterVertically) {
-            Text(title, style = MaterialTheme.typography.labelLarge, color = Color.Gray)
-            Spacer(modifier = Modifier.weight(1f))
-            Text("${tasks.size}", style = MaterialTheme.typography.labelLarge, color = Color.Gray)
-        }
-        Spacer(modifier = Modifier.height(8.dp))
-        
-        Card(
-            colors = CardDefaults.cardColors(containerColor = Color.White),
-            elevation = CardDefaults.cardElevation(defaultElevation = 2.dp),
-            shape = RoundedCornerShape(12.dp)
-        ) {
-            Row(modifier = Modifier.height(IntrinsicSize.Min)) {
-                // Yellow Accent Bar
-                Box(
-                    modifier = Modifier
-                        .width(4.dp)
-                        .fillMaxHeight()
-                        .background(Color(0xFFFFC107)) // Amber/Yellow
-                )
-                
-                Column {
-                    tasks.forEachIndexed { index, todo ->
-                        TaskItemRow(todo, viewModel, onEdit)
-                        if (index < tasks.size - 1) {
-                            Divider(color = Color.LightGray.copy(alpha = 0.2f), thickness = 0.5.dp)
-                        }
-                    }
+fun TaskGroupHeader(title: String, count: Int) {
+    Row(
+        verticalAlignment = Alignment.CenterVertically,
+        modifier = Modifier
+            .fillMaxWidth()
+            .background(MaterialTheme.colorScheme.background) // Opaque so rows scroll under it
+            .padding(start = 16.dp, end = 16.dp, top = 16.dp, bottom = 8.dp)
+    ) {
+        Text(title, style = MaterialTheme.typography.labelLarge, color = Color.Gray)
+        Spacer(modifier = Modifier.weight(1f))
+        Text("$count", style = MaterialTheme.typography.labelLarge, color = Color.Gray)
+    }
+}
+
+// One row of a bucket, drawn as a slice of the group card so consecutive rows look like one card
+@Composable
+fun TaskGroupRow(tasks: LazyPagingItems<TodoItem>, index: Int, viewModel: TodoViewModel, selectedIds: Set<Long>, onEdit: (TodoItem) -> Unit) {
+    val todo = tasks[index]
+    val isFirst = index == 0
+    val isLast = index == tasks.itemCount - 1
+    val shape = when {
+        isFirst && isLast -> RoundedCornerShape(12.dp)
+        isFirst -> RoundedCornerShape(topStart = 12.dp, topEnd = 12.dp)
+        isLast -> RoundedCornerShape(bottomStart = 12.dp, bottomEnd = 12.dp)
+        else -> RectangleShape
+    }
+
+    Card(
+        colors = CardDefaults.cardColors(containerColor = Color.White),
+        shape = shape,
+        modifier = Modifier.padding(horizontal = 16.dp)
+    ) {
+        Row(modifier = Modifier.height(IntrinsicSize.Min)) {
+            // Yellow Accent Bar
+            Box(
+                modifier = Modifier
+                    .width(4.dp)
+                    .fillMaxHeight()
+                    .background(Color(0xFFFFC107)) // Amber/Yellow
+            )
+
+            Column {
+                if (todo != null) {
+                    TaskItemRow(
+                        todo = todo,
+                        viewModel = viewModel,
+                        onEdit = onEdit,
+                        selected = todo.id in selectedIds,
+                        selectionMode = selectedIds.isNotEmpty()
+                    )
+                } else {
+                    // Placeholder while the page is loading
+                    Spacer(modifier = Modifier.fillMaxWidth().height(56.dp))
+                }
+                if (!isLast) {
+                    Divider(color = Color.LightGray.copy(alpha = 0.2f), thickness = 0.5.dp)
                 }
             }
         }
@@ -589,8 +943,15 @@ fun ImagePreviewDialog(imagePath: String, onDismiss: () -> Unit) {
 
 // ...
 
+@OptIn(ExperimentalFoundationApi::class)
 @Composable
-fun TaskItemRow(todo: TodoItem, viewModel: TodoViewModel, onEdit: (TodoItem) -> Unit) {
+fun TaskItemRow(
+    todo: TodoItem,
+    viewModel: TodoViewModel,
+    onEdit: (TodoItem) -> Unit,
+    selected: Boolean = false,
+    selectionMode: Boolean = false
+) {
     var expanded by remember { mutableStateOf(false) }
     var previewImage by remember { mutableStateOf<String?>(null) }
     var showDeleteConfirm by remember { mutableStateOf(false) }
@@ -637,7 +998,11 @@ fun TaskItemRow(todo: TodoItem, viewModel: TodoViewModel, onEdit: (TodoItem) ->
     
     Column(modifier = Modifier
         .fillMaxWidth()
-        .clickable { expanded = !expanded }
+        .background(if (selected) MaterialTheme.colorScheme.primaryContainer else Color.Transparent)
+        .combinedClickable(
+            onClick = { if (selectionMode) viewModel.toggleSelection(todo.id) else expanded = !expanded },
+            onLongClick = { viewModel.toggleSelection(todo.id) }
+        )
         .padding(12.dp)
     ) {
         Row(verticalAlignment = Alignment.CenterVertically) {
@@ -691,25 +1056,23 @@ fun TaskItemRow(todo: TodoItem, viewModel: TodoViewModel, onEdit: (TodoItem) ->
                 Spacer(modifier = Modifier.height(4.dp))
                 
                 Row(verticalAlignment = Alignment.CenterVertically) {
-                    if (todo.repeatMode > 0) {
+                    val rule = remember(todo.recurrence, todo.repeatMode, todo.isMonthly, todo.timeInMillis) {
+                        RecurrenceRule.of(todo.recurrence, todo.repeatMode, todo.isMonthly, todo.timeInMillis)
+                    }
+                    if (rule != null) {
                          Surface(
                              color = MaterialTheme.colorScheme.secondaryContainer,
                              shape = RoundedCornerShape(4.dp),
                              modifier = Modifier.padding(end = 4.dp)
                          ) {
                              Text(
-                                 text = if (todo.repeatMode == 1) "每周" else "每月",
+                                 text = rule.label(),
                                  style = MaterialTheme.typography.labelSmall,
                                  modifier = Modifier.padding(horizontal = 4.dp, vertical = 2.dp),
                                  color = MaterialTheme.colorScheme.onSecondaryContainer
                              )
                          }
                     }
-                    if (todo.imagePaths.isNotEmpty()) {
-                        Icon(Icons.Default.Star, contentDescription = null, modifier = Modifier.size(12.dp), tint = Color.Gray)
-                        Spacer(modifier = Modifier.width(4.dp))
-                    }
-                    
                     // Expand Arrow Hint
                     Icon(
                         Icons.Default.KeyboardArrowDown, 
@@ -721,25 +1084,45 @@ fun TaskItemRow(todo: TodoItem, viewModel: TodoViewModel, onEdit: (TodoItem) ->
             }
         }
         
-        // Expanded Content (Images)
-        if (expanded && todo.imagePaths.isNotEmpty()) {
-            Spacer(modifier = Modifier.height(8.dp))
-            Row(horizontalArrangement = Arrangement.spacedBy(8.dp)) {
-                todo.imagePaths.forEach { path ->
-                    AsyncImage(
-                        model = File(path),
-                        contentDescription = "Attachment",
-                        contentScale = ContentScale.Crop,
-                        modifier = Modifier
-                            .size(60.dp)
-                            .clip(RoundedCornerShape(8.dp))
-                            .background(Color.LightGray)
-                            .clickable { previewImage = path }
-                    )
+        // Expanded Content (Images), loaded on demand
+        if (expanded) {
+            val imagePaths by remember(todo.id) {
+                viewModel.attachmentPaths(todo.id)
+            }.collectAsState(initial = emptyList())
+
+            if (imagePaths.isNotEmpty()) {
+                Spacer(modifier = Modifier.height(8.dp))
+                Row(horizontalArrangement = Arrangement.spacedBy(8.dp)) {
+                    imagePaths.forEach { path ->
+                        AttachmentThumbnail(
+                            path = path,
+                            sizePx = Thumbnails.ROW_PX,
+                            contentDescription = "Attachment",
+                            modifier = Modifier
+                                .size(60.dp)
+                                .clip(RoundedCornerShape(8.dp))
+                                .background(Color.LightGray)
+                                .clickable { previewImage = path }
+                        )
+                    }
                 }
             }
         }
         
+        // Expanded Content (Upcoming occurrences of a recurring task; memoized by the engine)
+        if (expanded) {
+            val rule = RecurrenceRule.of(todo.recurrence, todo.repeatMode, todo.isMonthly, todo.timeInMillis)
+            if (rule != null) {
+                val upcoming = RecurrenceEngine.nextN(rule, todo.timeInMillis, 3)
+                Spacer(modifier = Modifier.height(8.dp))
+                Text(
+                    text = "Next: " + upcoming.joinToString(", ") { format.format(Date(it)) },
+                    style = MaterialTheme.typography.labelSmall,
+                    color = Color.Gray
+                )
+            }
+        }
+
         // Expanded Content (Actions)
         if (expanded) {
              Spacer(modifier = Modifier.height(12.dp))
@@ -804,10 +1187,187 @@ fun NumericStepper(
     }
 }
 
+// The prefs-backed tunables (LogRetention, ReminderSettings, ImageImportPipeline). Current values are read off the main thread;
+// nothing is written until Save.
+@Composable
+fun SettingsDialog(onDismiss: () -> Unit) {
+    val context = LocalContext.current
+    var loaded by remember { mutableStateOf(false) }
+    var logRowsK by remember { mutableStateOf(LogRetention.DEFAULT_MAX_ROWS / 1000) }
+    var logDays by remember { mutableStateOf((LogRetention.DEFAULT_MAX_AGE_MILLIS / DAY_MS).toInt()) }
+    var coalesceMinutes by remember { mutableStateOf((ReminderSettings.DEFAULT_COALESCE_WINDOW_MILLIS / MINUTE_MS).toInt()) }
+    var retryPolicyKey by remember { mutableStateOf(AlignedRetryPolicy.KEY) }
+    var retrySlotMinutes by remember { mutableStateOf((AlignedRetryPolicy.DEFAULT_SLOT_MS / MINUTE_MS).toInt()) }
+    var imageMaxDimension by remember { mutableStateOf(ImageImportPipeline.DEFAULT_MAX_DIMENSION) }
+    var imageQuality by remember { mutableStateOf(ImageImportPipeline.DEFAULT_QUALITY) }
+
+    LaunchedEffect(Unit) {
+        withContext(Dispatchers.IO) {
+            logRowsK = (LogRetention.maxRows(context) / 1000).coerceIn(1, 50)
+            logDays = (LogRetention.maxAgeMillis(context) / DAY_MS).toInt().coerceIn(1, 30)
+            coalesceMinutes = (ReminderSettings.coalesceWindowMillis(context) / MINUTE_MS).toInt()
+            retryPolicyKey = ReminderSettings.retryPolicy(context).key
+            retrySlotMinutes = (ReminderSettings.retrySlotMillis(context) / MINUTE_MS).toInt().coerceIn(1, 60)
+            imageMaxDimension = ImageImportPipeline.maxDimension(context)
+            imageQuality = ImageImportPipeline.quality(context)
+        }
+        loaded = true
+    }
+
+    AlertDialog(
+        onDismissRequest = onDismiss,
+        title = { Text("Settings") },
+        text = {
+            Column(modifier = Modifier.verticalScroll(rememberScrollState())) {
+                Text("Logs", style = MaterialTheme.typography.titleSmall, fontWeight = FontWeight.Bold)
+                SettingRow("Keep rows:") {
+                    NumericStepper(value = logRowsK, onValueChange = { logRowsK = it }, range = 1..50, unit = "k")
+                }
+                SettingRow("Keep days:") {
+                    NumericStepper(value = logDays, onValueChange = { logDays = it }, range = 1..30, unit = "d")
+                }
+                Spacer(modifier = Modifier.height(8.dp))
+                Text("Reminders", style = MaterialTheme.typography.titleSmall, fontWeight = FontWeight.Bold)
+                // Reminders due this close together fire in one pass and share a notification
+                SettingRow("Group within:") {
+                    NumericStepper(
+                        value = coalesceMinutes,
+                        onValueChange = { coalesceMinutes = it },
+                        range = 0..(ReminderSettings.MAX_COALESCE_WINDOW_MILLIS / MINUTE_MS).toInt(),
+                        unit = "m"
+                    )
+                }
+                Text("Retry timing:", style = MaterialTheme.typography.bodyMedium, modifier = Modifier.padding(top = 4.dp))
+                listOf(
+                    FixedRetryPolicy.KEY to "Fixed interval",
+                    ExponentialBackoffRetryPolicy.KEY to "Back off (2x each retry)",
+                    AlignedRetryPolicy.KEY to "Aligned to shared slots"
+                ).forEach { (key, label) ->
+                    Row(verticalAlignment = Alignment.CenterVertically) {
+                        RadioButton(selected = retryPolicyKey == key, onClick = { retryPolicyKey = key })
+                        Text(label, style = MaterialTheme.typography.bodySmall)
+                    }
+                }
+                if (retryPolicyKey == AlignedRetryPolicy.KEY) {
+                    SettingRow("Slot:") {
+                        NumericStepper(value = retrySlotMinutes, onValueChange = { retrySlotMinutes = it }, range = 1..60, unit = "m")
+                    }
+                }
+                Spacer(modifier = Modifier.height(8.dp))
+                Text("Images", style = MaterialTheme.typography.titleSmall, fontWeight = FontWeight.Bold)
+                // Applies to images imported from now on
+                Text("Max size:", style = MaterialTheme.typography.bodyMedium, modifier = Modifier.padding(top = 4.dp))
+                Row(verticalAlignment = Alignment.CenterVertically) {
+                    IMAGE_DIMENSIONS.forEach { px ->
+                        RadioButton(selected = imageMaxDimension == px, onClick = { imageMaxDimension = px })
+                        Text("$px", style = MaterialTheme.typography.bodySmall)
+                    }
+                }
+                SettingRow("JPEG quality:") {
+                    NumericStepper(value = imageQuality, onValueChange = { imageQuality = it }, range = 30..100)
+                }
+            }
+        },
+        confirmButton = {
+            Button(onClick = {
+                LogRetention.configure(context, logRowsK * 1000, logDays * DAY_MS)
+                ReminderSettings.configure(context, coalesceMinutes * MINUTE_MS)
+                ReminderSettings.configureRetry(context, retryPolicyKey, retrySlotMinutes * MINUTE_MS)
+                ImageImportPipeline.configure(context, imageMaxDimension, imageQuality)
+                onDismiss()
+            }, enabled = loaded) {
+                Text("Save")
+            }
+        },
+        dismissButton = { TextButton(onClick = onDismiss) { Text("Cancel") } }
+    )
+}
+
+@Composable
+private fun SettingRow(label: String, control: @Composable () -> Unit) {
+    Row(
+        modifier = Modifier.fillMaxWidth().padding(vertical = 4.dp),
+        horizontalArrangement = Arrangement.SpaceBetween,
+        verticalAlignment = Alignment.CenterVertically
+    ) {
+        Text(label, style = MaterialTheme.typography.bodyMedium)
+        control()
+    }
+}
+
+private const val MINUTE_MS = 60 * 1000L
+// Long-edge choices offered for imports; a value set elsewhere stays until one is picked
+private val IMAGE_DIMENSIONS = listOf(1024, 1600, 2048, 4096)
+private const val DAY_MS = 24 * 60 * MINUTE_MS
+
+// Edits the first quiet window (whole hours); any further windows are kept as they are
+@Composable
+fun QuietHoursDialog(onDismiss: () -> Unit) {
+    val context = LocalContext.current
+    val stored = remember { ReminderSettings.quietWindows(context) }
+    val first = stored.firstOrNull()
+    var enabled by remember { mutableStateOf(first != null) }
+    var startHour by remember { mutableStateOf((first ?: ReminderSettings.SUGGESTED_QUIET_WINDOW).startMinute / 60) }
+    var endHour by remember { mutableStateOf((first ?: ReminderSettings.SUGGESTED_QUIET_WINDOW).endMinute / 60) }
+    var retriesOnly by remember { mutableStateOf(first?.retriesOnly ?: ReminderSettings.SUGGESTED_QUIET_WINDOW.retriesOnly) }
+
+    AlertDialog(
+        onDismissRequest = onDismiss,
+        title = { Text("Quiet Hours") },
+        text = {
+            Column {
+                Row(verticalAlignment = Alignment.CenterVertically) {
+                    Checkbox(checked = enabled, onCheckedChange = { enabled = it })
+                    Text("Hold back reminders", style = MaterialTheme.typography.bodyMedium)
+                }
+                Row(
+                    modifier = Modifier.fillMaxWidth(),
+                    horizontalArrangement = Arrangement.SpaceBetween,
+                    verticalAlignment = Alignment.CenterVertically
+                ) {
+                    Text("From:", style = MaterialTheme.typography.bodyMedium)
+                    NumericStepper(value = startHour, onValueChange = { startHour = it }, range = 0..23, unit = ":00")
+                }
+                Spacer(modifier = Modifier.height(8.dp))
+                Row(
+                    modifier = Modifier.fillMaxWidth(),
+                    horizontalArrangement = Arrangement.SpaceBetween,
+                    verticalAlignment = Alignment.CenterVertically
+                ) {
+                    Text("Until:", style = MaterialTheme.typography.bodyMedium)
+                    NumericStepper(value = endHour, onValueChange = { endHour = it }, range = 0..23, unit = ":00")
+                }
+                Row(verticalAlignment = Alignment.CenterVertically) {
+                    Checkbox(checked = retriesOnly, onCheckedChange = { retriesOnly = it })
+                    Text("Retries only", style = MaterialTheme.typography.bodyMedium)
+                }
+            }
+        },
+        confirmButton = {
+            Button(onClick = {
+                val rest = stored.drop(1)
+                val windows = if (enabled) {
+                    listOf(QuietWindow(startHour * 60, endHour * 60, first?.days ?: DayOfWeek.values().toSet(), retriesOnly)) + rest
+                } else {
+                    rest
+                }
+                ReminderSettings.configureQuietHours(context, windows)
+                onDismiss()
+            }, enabled = !enabled || startHour != endHour) {
+                Text("Save")
+            }
+        },
+        dismissButton = { TextButton(onClick = onDismiss) { Text("Cancel") } }
+    )
+}
+
 @OptIn(ExperimentalMaterial3Api::class)
 @Composable
 fun AddEditTodoDialog(
     todo: TodoItem? = null,
+    existingImages: List<String> = emptyList(),
+    importProgress: ImportProgress? = null,
+    saving: Boolean = false,
     onDismiss: () -> Unit, 
     onConfirm: (String, Long, Int, String, List<Uri>, Int, Int) -> Unit
 ) {
@@ -829,7 +1389,7 @@ fun AddEditTodoDialog(
     var selectedTime by remember { mutableStateOf(calendar.timeInMillis) }
     
     val launcher = rememberLauncherForActivityResult(ActivityResultContracts.GetMultipleContents()) { uris ->
-        selectedImages = (selectedImages + uris).take(3 - (todo?.imagePaths?.size ?: 0))
+        selectedImages = (selectedImages + uris).take(3 - existingImages.size)
     }
 
     val datePickerDialog = DatePickerDialog(context, { _, y, m, d -> 
@@ -872,11 +1432,11 @@ fun AddEditTodoDialog(
                 Spacer(modifier = Modifier.height(8.dp))
                 
                 // Existing Images (for Edit mode)
-                if (todo != null && todo.imagePaths.isNotEmpty()) {
+                if (existingImages.isNotEmpty()) {
                     Text("Existing Images:", style = MaterialTheme.typography.bodySmall)
                     Row(horizontalArrangement = Arrangement.spacedBy(4.dp)) {
-                        todo.imagePaths.forEach { path ->
-                            AsyncImage(model = File(path), contentDescription = null, modifier = Modifier.size(40.dp).clip(RoundedCornerShape(4.dp)).background(Color.LightGray))
+                        existingImages.forEach { path ->
+                            AttachmentThumbnail(path = path, sizePx = Thumbnails.DIALOG_PX, contentDescription = null, modifier = Modifier.size(40.dp).clip(RoundedCornerShape(4.dp)).background(Color.LightGray))
                         }
                     }
                     Spacer(modifier = Modifier.height(8.dp))
@@ -885,15 +1445,36 @@ fun AddEditTodoDialog(
                 OutlinedButton(onClick = { launcher.launch("image/*") }, modifier = Modifier.fillMaxWidth()) {
                     Icon(Icons.Default.Add, null)
                     Spacer(modifier = Modifier.width(8.dp))
-                    Text("Add Images (${selectedImages.size + (todo?.imagePaths?.size ?: 0)}/3)")
+                    Text("Add Images (${selectedImages.size + existingImages.size}/3)")
                 }
                 if (selectedImages.isNotEmpty()) {
                     Row(horizontalArrangement = Arrangement.spacedBy(4.dp)) {
                         selectedImages.forEach { uri ->
-                            AsyncImage(model = uri, contentDescription = null, modifier = Modifier.size(40.dp).clip(RoundedCornerShape(4.dp)))
+                            AsyncImage(
+                                model = ImageRequest.Builder(LocalContext.current)
+                                    .data(uri)
+                                    .size(Thumbnails.DIALOG_PX)
+                                    .memoryCacheKey("$uri#${Thumbnails.DIALOG_PX}")
+                                    .build(),
+                                contentDescription = null,
+                                contentScale = ContentScale.Crop,
+                                modifier = Modifier.size(40.dp).clip(RoundedCornerShape(4.dp))
+                            )
                         }
                     }
                 }
+                importProgress?.let { progress ->
+                    Spacer(modifier = Modifier.height(4.dp))
+                    LinearProgressIndicator(
+                        progress = if (progress.total == 0) 0f else progress.done.toFloat() / progress.total,
+                        modifier = Modifier.fillMaxWidth()
+                    )
+                    Text(
+                        "Importing images ${progress.done}/${progress.total}",
+                        style = MaterialTheme.typography.labelSmall,
+                        color = Color.Gray
+                    )
+                }
                 
                 Spacer(modifier = Modifier.height(16.dp))
                 Text("Advanced Settings", style = MaterialTheme.typography.labelMedium, color = MaterialTheme.colorScheme.primary)
@@ -917,6 +1498,17 @@ fun AddEditTodoDialog(
                         Text("Monthly", style = MaterialTheme.typography.bodySmall)
                     }
                 }
+                Row(verticalAlignment = Alignment.CenterVertically) {
+                    Row(verticalAlignment = Alignment.CenterVertically) {
+                        RadioButton(selected = repeatMode == 3, onClick = { repeatMode = 3 })
+                        Text("Daily", style = MaterialTheme.typography.bodySmall)
+                    }
+                    Spacer(modifier = Modifier.width(8.dp))
+                    Row(verticalAlignment = Alignment.CenterVertically) {
+                        RadioButton(selected = repeatMode == 4, onClick = { repeatMode = 4 })
+                        Text("Yearly", style = MaterialTheme.typography.bodySmall)
+                    }
+                }
 
                 Spacer(modifier = Modifier.height(8.dp))
                 
@@ -951,7 +1543,10 @@ fun AddEditTodoDialog(
             }
         },
         confirmButton = {
-            Button(onClick = { if (name.isNotBlank()) onConfirm(name, selectedTime, repeatMode, remarks, selectedImages, maxRetries, retryInterval) }) {
+            Button(
+                onClick = { if (name.isNotBlank()) onConfirm(name, selectedTime, repeatMode, remarks, selectedImages, maxRetries, retryInterval) },
+                enabled = !saving && importProgress == null
+            ) {
                 Text(if (todo == null) "Save" else "Update")
             }
         },
@@ -963,12 +1558,38 @@ fun AddEditTodoDialog(
 @Composable
 fun LogViewerScreen(viewModel: TodoViewModel, onBack: () -> Unit) {
     val logs by viewModel.logs.collectAsState()
+    val logCount by viewModel.logCount.collectAsState()
     val formatter = SimpleDateFormat("MM-dd HH:mm:ss", Locale.getDefault())
+    val diagnostics by remember { viewModel.diagnostics() }.collectAsState(initial = null)
+    val maintenance = diagnostics?.maintenance
 
     Scaffold(
         topBar = {
             TopAppBar(
-                title = { Text("App Logs") },
+                title = {
+                    Column {
+                        Text("App Logs")
+                        // Logger counters for this process; refreshed whenever a flushed batch lands in `logs`
+                        Text(
+                            "$logCount rows · Flushed ${AppLogger.flushedCount} · Dropped ${AppLogger.droppedCount}",
+                            style = MaterialTheme.typography.labelSmall,
+                            color = Color.Gray
+                        )
+                        Text(
+                            "Alarms · Set ${AlarmScheduler.scheduleCount} · Cancelled ${AlarmScheduler.cancelCount} · Skipped ${AlarmScheduler.skipCount}",
+                            style = MaterialTheme.typography.labelSmall,
+                            color = Color.Gray
+                        )
+                        maintenance?.let {
+                            Text(
+                                "Maintenance · ${formatter.format(Date(it.lastRunAt))} · ${it.lastDurationMs} ms · " +
+                                    "Reclaimed ${it.lastReclaimedBytes / 1024} KB (total ${it.totalReclaimedBytes / 1024} KB)",
+                                style = MaterialTheme.typography.labelSmall,
+                                color = Color.Gray
+                            )
+                        }
+                    }
+                },
                 navigationIcon = {
                     IconButton(onClick = onBack) {
                         Icon(Icons.Default.ArrowBack, contentDescription = "Back")
@@ -987,6 +1608,17 @@ fun LogViewerScreen(viewModel: TodoViewModel, onBack: () -> Unit) {
             modifier = Modifier.padding(padding).fillMaxSize(),
             verticalArrangement = Arrangement.spacedBy(8.dp)
         ) {
+            val stats = diagnostics
+            if (stats != null && stats.wakeLocks.isNotEmpty()) {
+                item {
+                    WakeLockStatsCard(stats.wakeLocks, stats.wakeLockTimeouts)
+                }
+            }
+            if (stats != null && stats.latency.isNotEmpty()) {
+                item {
+                    LatencyStatsCard(stats.latency)
+                }
+            }
             items(logs.size) { index ->
                 val log = logs[index]
                 Card(
@@ -1019,3 +1651,105 @@ fun LogViewerScreen(viewModel: TodoViewModel, onBack: () -> Unit) {
         }
     }
 }
+
+@Composable
+fun WakeLockStatsCard(stats: List<AppMetrics.Summary>, timeouts: Map<String, Long>) {
+    Card(
+        colors = CardDefaults.cardColors(
+            containerColor = MaterialTheme.colorScheme.secondaryContainer
+        ),
+        modifier = Modifier.fillMaxWidth()
+    ) {
+        Column(modifier = Modifier.padding(8.dp)) {
+            Text(
+                text = "Wake lock holds · Timeouts hit ${WakeLockManager.timeoutCount}",
+                style = MaterialTheme.typography.labelMedium,
+                fontWeight = FontWeight.Bold
+            )
+            Spacer(modifier = Modifier.height(4.dp))
+            stats.forEach { stat ->
+                val action = stat.name.substringAfter('.')
+                Text(
+                    text = "$action: ${stat.count}× · p50 ${stat.percentile(0.5)} ms · p99 ${stat.percentile(0.99)} ms · " +
+                        "max ${stat.maxMs} ms · timeout ${(timeouts[action] ?: 0) / 1000}s",
+                    style = MaterialTheme.typography.bodySmall
+                )
+            }
+        }
+    }
+}
+
+@Composable
+fun LatencyStatsCard(stats: List<AppMetrics.Summary>) {
+    Card(
+        colors = CardDefaults.cardColors(
+            containerColor = MaterialTheme.colorScheme.secondaryContainer
+        ),
+        modifier = Modifier.fillMaxWidth()
+    ) {
+        Column(modifier = Modifier.padding(8.dp)) {
+            Text(
+                text = "Startup & notification latency",
+                style = MaterialTheme.typography.labelMedium,
+                fontWeight = FontWeight.Bold
+            )
+            Spacer(modifier = Modifier.height(4.dp))
+            stats.forEach { stat ->
+                Text(
+                    text = "${stat.name}: ${stat.count}× · p50 ${stat.percentile(0.5)} ms · p99 ${stat.percentile(0.99)} ms · max ${stat.maxMs} ms",
+                    style = MaterialTheme.typography.bodySmall
+                )
+            }
+        }
+    }
+}
+
+// Attachment tile: the pre-generated thumbnail for `sizePx` when present, else the original
+// downsampled to that size. Cached per (attachment, size) so row and dialog tiles don't collide.
+// Which file to load is decided on IO (a stat per tile), unless the tile is already in the memory
+// cache, where the key alone is enough and it shows on the first frame.
+@Composable
+fun AttachmentThumbnail(path: String, sizePx: Int, contentDescription: String?, modifier: Modifier = Modifier) {
+    val context = LocalContext.current
+    val cacheKey = "$path#$sizePx"
+    val request by produceState(
+        initialValue = remember(path, sizePx) { cachedThumbnailRequest(context, path, sizePx, cacheKey) },
+        path,
+        sizePx
+    ) {
+        // produceState keeps its value across key changes; a request for another tile doesn't count
+        if (value?.memoryCacheKey?.key == cacheKey) return@produceState
+        value = cachedThumbnailRequest(context, path, sizePx, cacheKey)
+        if (value == null) {
+            value = withContext(Dispatchers.IO) {
+                thumbnailRequest(context, Thumbnails.find(context, path, sizePx) ?: File(path), sizePx, cacheKey)
+            }
+        }
+    }
+    val current = request
+    if (current == null) {
+        Box(modifier = modifier)
+    } else {
+        AsyncImage(
+            model = current,
+            contentDescription = contentDescription,
+            contentScale = ContentScale.Crop,
+            modifier = modifier
+        )
+    }
+}
+
+// A memory-cache hit is served by key, so no file lookup is needed to build its request
+private fun cachedThumbnailRequest(context: Context, path: String, sizePx: Int, cacheKey: String): ImageRequest? =
+    if (context.imageLoader.memoryCache?.get(MemoryCache.Key(cacheKey)) != null) {
+        thumbnailRequest(context, File(path), sizePx, cacheKey)
+    } else {
+        null
+    }
+
+private fun thumbnailRequest(context: Context, file: File, sizePx: Int, cacheKey: String): ImageRequest =
+    ImageRequest.Builder(context)
+        .data(file)
+        .size(sizePx)
+        .memoryCacheKey(cacheKey)
+        .build()
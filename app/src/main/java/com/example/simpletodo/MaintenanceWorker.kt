@@ -0,0 +1,148 @@
+package com.example.simpletodo
+
+import android.content.Context
+import android.os.SystemClock
+import androidx.sqlite.db.SupportSQLiteDatabase
+import androidx.work.Constraints
+import androidx.work.CoroutineWorker
+import androidx.work.ExistingPeriodicWorkPolicy
+import androidx.work.PeriodicWorkRequestBuilder
+import androidx.work.WorkManager
+import androidx.work.WorkerParameters
+import java.io.File
+import java.util.concurrent.TimeUnit
+
+// Daily housekeeping, only while the device is idle and charging: log retention, orphaned image
+// files, and SQLite upkeep (PRAGMA optimize + incremental vacuum). Each run's duration and
+// reclaimed bytes are recorded, so none of this has to happen on a user-facing path.
+class MaintenanceWorker(context: Context, params: WorkerParameters) : CoroutineWorker(context, params) {
+
+    override suspend fun doWork(): Result {
+        val context = applicationContext
+        val start = SystemClock.elapsedRealtime()
+        return try {
+            val prunedLogs = LogRetention.prune(context)
+            val imageBytes = AttachmentStore.sweep(context) + AttachmentGc.collect(context).reclaimedBytes
+            val thumbnails = backfillThumbnails(context)
+            val dbBytes = compactDatabase(context)
+
+            val durationMs = SystemClock.elapsedRealtime() - start
+            MaintenanceStats.record(context, durationMs, imageBytes + dbBytes)
+            AppMetrics.record(context, "maintenance.run", durationMs)
+            AppLogger.log(
+                context,
+                "Maintenance",
+                "Pruned $prunedLogs log rows, generated $thumbnails thumbnails, reclaimed ${imageBytes / 1024} KB of images and ${dbBytes / 1024} KB of database"
+            )
+            Result.success()
+        } catch (e: Exception) {
+            AppLogger.log(context, "Maintenance", "Error: ${e.message}")
+            e.printStackTrace()
+            Result.retry()
+        } finally {
+            AppLogger.flush(context)
+        }
+    }
+
+    // Attachments imported before thumbnails existed; a bounded batch per run. Paths that can
+    // never get one (original gone, kept-as-is .orig, undecodable) are skipped, and decode
+    // failures remembered, so they can't fill every batch.
+    private suspend fun backfillThumbnails(context: Context): Int {
+        val paths = TodoDatabase.getDatabase(context).todoDao().getAllAttachmentPaths()
+        val failed = Thumbnails.failedPaths(context).intersect(paths.toSet())
+        val newlyFailed = HashSet<String>()
+        var written = 0
+        paths.asSequence()
+            .filter { path -> path !in failed && File(path).let { it.extension != "orig" && it.exists() } }
+            .filter { path -> Thumbnails.SIZES.any { Thumbnails.find(context, path, it) == null } }
+            .take(THUMBNAIL_BACKFILL_BATCH)
+            .forEach { path ->
+                val count = Thumbnails.generateMissing(context, path)
+                if (count == 0) newlyFailed += path
+                written += count
+            }
+        // Rewritten each run, which also drops entries for attachments that are gone
+        Thumbnails.setFailedPaths(context, failed + newlyFailed)
+        return written
+    }
+
+    // Returns the bytes the database files shrank by
+    private fun compactDatabase(context: Context): Long {
+        val db = TodoDatabase.getDatabase(context).openHelper.writableDatabase
+        val dbFile = context.getDatabasePath(DB_NAME)
+        val before = databaseSize(dbFile)
+
+        if (pragmaLong(db, "PRAGMA auto_vacuum") != AUTO_VACUUM_INCREMENTAL) {
+            // One-time switch: auto_vacuum only takes effect after a full VACUUM rebuilds the file
+            query(db, "PRAGMA auto_vacuum = INCREMENTAL")
+            db.execSQL("VACUUM")
+        } else {
+            query(db, "PRAGMA incremental_vacuum")
+        }
+        query(db, "PRAGMA optimize")
+        query(db, "PRAGMA wal_checkpoint(TRUNCATE)")
+
+        return (before - databaseSize(dbFile)).coerceAtLeast(0)
+    }
+
+    private fun databaseSize(dbFile: File): Long =
+        dbFile.length() + File(dbFile.path + "-wal").length()
+
+    // PRAGMAs may return rows, so run them as queries and drain the cursor
+    private fun query(db: SupportSQLiteDatabase, sql: String) {
+        db.query(sql).use { cursor -> while (cursor.moveToNext()) { } }
+    }
+
+    private fun pragmaLong(db: SupportSQLiteDatabase, sql: String): Long =
+        db.query(sql).use { cursor -> if (cursor.moveToFirst()) cursor.getLong(0) else -1 }
+
+    companion object {
+        private const val WORK_NAME = "maintenance"
+        private const val DB_NAME = "todo_database"
+        private const val AUTO_VACUUM_INCREMENTAL = 2L
+        private const val THUMBNAIL_BACKFILL_BATCH = 50
+
+        fun schedule(context: Context) {
+            val constraints = Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .build()
+            val request = PeriodicWorkRequestBuilder<MaintenanceWorker>(1, TimeUnit.DAYS)
+                .setConstraints(constraints)
+                .build()
+            WorkManager.getInstance(context)
+                .enqueueUniquePeriodicWork(WORK_NAME, ExistingPeriodicWorkPolicy.KEEP, request)
+        }
+    }
+}
+
+// Last / cumulative maintenance results, persisted like AppMetrics
+object MaintenanceStats {
+    private const val PREFS = "maintenance_stats"
+
+    data class Snapshot(val lastRunAt: Long, val lastDurationMs: Long, val lastReclaimedBytes: Long, val totalReclaimedBytes: Long)
+
+    fun record(context: Context, durationMs: Long, reclaimedBytes: Long) {
+        val prefs = prefs(context)
+        prefs.edit()
+            .putLong("lastRunAt", System.currentTimeMillis())
+            .putLong("lastDurationMs", durationMs)
+            .putLong("lastReclaimedBytes", reclaimedBytes)
+            .putLong("totalReclaimedBytes", prefs.getLong("totalReclaimedBytes", 0) + reclaimedBytes)
+            .apply()
+    }
+
+    fun snapshot(context: Context): Snapshot? {
+        val prefs = prefs(context)
+        if (!prefs.contains("lastRunAt")) return null
+        return Snapshot(
+            lastRunAt = prefs.getLong("lastRunAt", 0),
+            lastDurationMs = prefs.getLong("lastDurationMs", 0),
+            lastReclaimedBytes = prefs.getLong("lastReclaimedBytes", 0),
+            totalReclaimedBytes = prefs.getLong("totalReclaimedBytes", 0)
+        )
+    }
+
+    private fun prefs(context: Context) =
+        context.applicationContext.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+}
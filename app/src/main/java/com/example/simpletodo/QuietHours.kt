@@ -0,0 +1,96 @@
+package com.example.simpletodo
+
+import java.time.DayOfWeek
+import java.time.Instant
+import java.time.LocalDate
+import java.time.LocalDateTime
+import java.time.ZoneId
+
+// A weekly blocked period, e.g. 23:00-07:00 every night or 12:00-13:00 on weekdays.
+// `days` are the days the window starts on; a window whose end is at or before its start runs
+// past midnight. `retriesOnly` windows hold back retries but let due times the user picked fire.
+data class QuietWindow(
+    val startMinute: Int, // Minutes after local midnight
+    val endMinute: Int,
+    val days: Set<DayOfWeek> = DayOfWeek.values().toSet(),
+    val retriesOnly: Boolean = false
+) {
+    fun format(): String = buildString {
+        append(hhmm(startMinute)).append('-').append(hhmm(endMinute))
+        if (days.size < 7) append(";days=").append(days.sortedBy { it.value }.joinToString("") { it.value.toString() })
+        if (retriesOnly) append(";retries")
+    }
+
+    companion object {
+        private fun hhmm(minute: Int) = "%02d:%02d".format(minute / 60, minute % 60)
+
+        private fun parseMinute(text: String): Int? {
+            val hour = text.substringBefore(':').toIntOrNull() ?: return null
+            val minute = text.substringAfter(':', "0").toIntOrNull() ?: return null
+            return if (hour in 0..23 && minute in 0..59) hour * 60 + minute else null
+        }
+
+        // "23:00-07:00", "12:00-13:00;days=12345", "23:00-07:00;retries"
+        fun parse(text: String): QuietWindow? {
+            val parts = text.split(';').map { it.trim() }
+            val range = parts.first()
+            val start = parseMinute(range.substringBefore('-')) ?: return null
+            val end = parseMinute(range.substringAfter('-', "")) ?: return null
+            var days = DayOfWeek.values().toSet()
+            var retriesOnly = false
+            parts.drop(1).forEach { part ->
+                when {
+                    part.startsWith("days=") -> days = part.removePrefix("days=")
+                        .mapNotNull { c -> c.digitToIntOrNull()?.takeIf { it in 1..7 }?.let { DayOfWeek.of(it) } }
+                        .toSet()
+                    part == "retries" -> retriesOnly = true
+                }
+            }
+            return QuietWindow(start, end, days, retriesOnly)
+        }
+
+        fun parseAll(text: String?): List<QuietWindow> =
+            text.orEmpty().split('|').mapNotNull { if (it.isBlank()) null else parse(it.trim()) }
+
+        fun formatAll(windows: List<QuietWindow>): String = windows.joinToString("|") { it.format() }
+    }
+}
+
+// Pushes trigger times out of quiet windows. Evaluated when the queue alarm is armed (and when a
+// fired pass decides what is due), so blocked periods never wake the device.
+object QuietHours {
+    private const val MAX_HOPS = 16 // Back-to-back windows; more than this means the rules block everything
+
+    // The first time at or after `trigger` that no applicable window blocks
+    fun nextAllowed(trigger: Long, windows: List<QuietWindow>, isRetry: Boolean, zone: ZoneId = ZoneId.systemDefault()): Long {
+        if (windows.isEmpty()) return trigger
+        var time = trigger
+        repeat(MAX_HOPS) {
+            val local = Instant.ofEpochMilli(time).atZone(zone).toLocalDateTime()
+            val blockedUntil = windows
+                .filter { isRetry || !it.retriesOnly }
+                .mapNotNull { blockedUntil(it, local) }
+                .maxOrNull()
+                ?: return time
+            time = blockedUntil.atZone(zone).toInstant().toEpochMilli()
+        }
+        return time
+    }
+
+    // End of the window occurrence containing `time`, or null. Checks the occurrence starting
+    // today and, for overnight windows, the one that started yesterday.
+    private fun blockedUntil(window: QuietWindow, time: LocalDateTime): LocalDateTime? {
+        val today = time.toLocalDate()
+        for (startDay in listOf(today, today.minusDays(1))) {
+            if (startDay.dayOfWeek !in window.days) continue
+            val start = atMinute(startDay, window.startMinute)
+            val endDay = if (window.endMinute > window.startMinute) startDay else startDay.plusDays(1)
+            val end = atMinute(endDay, window.endMinute)
+            if (!time.isBefore(start) && time.isBefore(end)) return end
+        }
+        return null
+    }
+
+    private fun atMinute(day: LocalDate, minute: Int): LocalDateTime =
+        day.atTime(minute / 60, minute % 60)
+}
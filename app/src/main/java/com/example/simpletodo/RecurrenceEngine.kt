@@ -0,0 +1,98 @@
+package com.example.simpletodo
+
+import android.util.LruCache
+import java.time.Instant
+import java.time.LocalDate
+import java.time.LocalTime
+import java.time.YearMonth
+import java.time.ZoneId
+import java.time.ZonedDateTime
+import java.time.temporal.TemporalAdjusters
+
+// Expands RecurrenceRules with java.time, in the device zone (DST-safe: the wall-clock time is kept).
+// Parsed rules and next-N expansions are memoized, so list rows and receivers that ask about the
+// same rule/anchor again don't re-parse or re-allocate.
+object RecurrenceEngine {
+    private const val MAX_CATCH_UP_STEPS = 10_000 // A daily rule ~27 years overdue
+
+    private val parsed = LruCache<String, Parsed>(64)
+    private val expansions = LruCache<ExpansionKey, LongArray>(128)
+
+    // LruCache can't hold nulls; remembers rules that failed to parse too
+    private class Parsed(val rule: RecurrenceRule?)
+
+    private data class ExpansionKey(val rule: RecurrenceRule, val anchor: Long, val count: Int, val zone: ZoneId)
+
+    fun parse(text: String?): RecurrenceRule? {
+        if (text.isNullOrBlank()) return null
+        parsed.get(text)?.let { return it.rule }
+        val rule = RecurrenceRule.parse(text)
+        parsed.put(text, Parsed(rule))
+        return rule
+    }
+
+    // The first occurrence after both `anchor` and `notBefore`, stepping along the rule; a task
+    // completed late lands on its next future slot instead of an already-missed one
+    fun nextAfter(rule: RecurrenceRule, anchor: Long, notBefore: Long, zone: ZoneId = ZoneId.systemDefault()): Long {
+        val start = Instant.ofEpochMilli(anchor).atZone(zone)
+        val time = start.toLocalTime()
+        var date = start.toLocalDate()
+        var steps = 0
+        while (true) {
+            val next = step(rule, date, time, zone, start.toLocalDate())
+            val millis = next.toInstant().toEpochMilli()
+            if (millis > notBefore || ++steps >= MAX_CATCH_UP_STEPS) return millis
+            date = next.toLocalDate()
+        }
+    }
+
+    // The next `count` occurrences after `anchor`. Memoized: callers must not modify the array.
+    fun nextN(rule: RecurrenceRule, anchor: Long, count: Int, zone: ZoneId = ZoneId.systemDefault()): LongArray {
+        val key = ExpansionKey(rule, anchor, count, zone)
+        expansions.get(key)?.let { return it }
+
+        val result = LongArray(count)
+        val start = Instant.ofEpochMilli(anchor).atZone(zone)
+        val time = start.toLocalTime()
+        var date = start.toLocalDate()
+        for (i in 0 until count) {
+            val next = step(rule, date, time, zone, start.toLocalDate())
+            result[i] = next.toInstant().toEpochMilli()
+            date = next.toLocalDate()
+        }
+        expansions.put(key, result)
+        return result
+    }
+
+    // One step of the rule from `date`. Monthly and yearly rules take the day (and month) from the
+    // rule's BYMONTHDAY/BYMONTH, else from `anchor`, so clamping (31st -> 30th, Feb 29 -> 28) doesn't
+    // accumulate across steps or across completions.
+    private fun step(rule: RecurrenceRule, date: LocalDate, time: LocalTime, zone: ZoneId, anchor: LocalDate): ZonedDateTime {
+        val nextDate = when (rule.freq) {
+            RecurrenceRule.Freq.DAILY -> date.plusDays(rule.interval.toLong())
+            RecurrenceRule.Freq.WEEKLY -> date.plusWeeks(rule.interval.toLong())
+            RecurrenceRule.Freq.YEARLY -> {
+                val month = YearMonth.of(date.year + rule.interval, if (rule.byMonth != 0) rule.byMonth else anchor.monthValue)
+                val day = if (rule.byMonthDay != 0) rule.byMonthDay else anchor.dayOfMonth
+                month.atDay(minOf(day, month.lengthOfMonth()))
+            }
+            RecurrenceRule.Freq.MONTHLY -> nextMonthly(rule, YearMonth.from(date), anchor.dayOfMonth)
+        }
+        return ZonedDateTime.of(nextDate, time, zone)
+    }
+
+    private fun nextMonthly(rule: RecurrenceRule, from: YearMonth, anchorDay: Int): LocalDate {
+        var month = from.plusMonths(rule.interval.toLong())
+        val weekday = rule.byWeekday
+        if (weekday == null) {
+            val day = if (rule.byMonthDay != 0) rule.byMonthDay else anchorDay
+            return month.atDay(minOf(day, month.lengthOfMonth()))
+        }
+        // "5th Tuesday" doesn't exist in every month; skip to the next month that has one
+        while (true) {
+            val candidate = month.atDay(1).with(TemporalAdjusters.dayOfWeekInMonth(rule.byWeekdayOrdinal, weekday))
+            if (YearMonth.from(candidate) == month) return candidate
+            month = month.plusMonths(rule.interval.toLong())
+        }
+    }
+}
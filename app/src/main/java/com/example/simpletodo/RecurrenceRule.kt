@@ -0,0 +1,99 @@
+package com.example.simpletodo
+
+import java.time.DayOfWeek
+import java.time.Instant
+import java.time.ZoneId
+
+// RRULE-style recurrence (a subset of RFC 5545), stored as text in todo_items.recurrence:
+//   FREQ=DAILY | WEEKLY | MONTHLY | YEARLY
+//   INTERVAL=n                 every n days/weeks/months/years (default 1)
+//   BYMONTHDAY=d               MONTHLY/YEARLY on day d, clamped to short months (31 = last day)
+//   BYMONTH=m                  YEARLY in month m
+//   BYDAY=2TU / BYDAY=-1FR     MONTHLY on the nth (or nth-from-last) weekday
+// The time of day always comes from the todo's current due time.
+data class RecurrenceRule(
+    val freq: Freq,
+    val interval: Int = 1,
+    val byMonthDay: Int = 0, // 0 = same day as the anchor
+    val byWeekday: DayOfWeek? = null,
+    val byWeekdayOrdinal: Int = 0, // 1..5 or -1..-5, only with byWeekday
+    val byMonth: Int = 0 // 1..12, 0 = same month as the anchor
+) {
+    enum class Freq { DAILY, WEEKLY, MONTHLY, YEARLY }
+
+    fun format(): String = buildString {
+        append("FREQ=").append(freq.name)
+        if (interval != 1) append(";INTERVAL=").append(interval)
+        if (byMonth != 0) append(";BYMONTH=").append(byMonth)
+        if (byMonthDay != 0) append(";BYMONTHDAY=").append(byMonthDay)
+        if (byWeekday != null) append(";BYDAY=").append(byWeekdayOrdinal).append(DAY_CODES[byWeekday.ordinal])
+    }
+
+    // Short label for the list chip
+    fun label(): String {
+        val unit = when (freq) {
+            Freq.DAILY -> "天"
+            Freq.WEEKLY -> "周"
+            Freq.MONTHLY -> "月"
+            Freq.YEARLY -> "年"
+        }
+        return if (interval == 1) "每$unit" else "每${interval}$unit"
+    }
+
+    companion object {
+        private val DAY_CODES = listOf("MO", "TU", "WE", "TH", "FR", "SA", "SU") // DayOfWeek order
+
+        // Dialog repeat modes. 0 = None, 1 = Weekly, 2 = Monthly, 3 = Daily, 4 = Yearly
+        const val REPEAT_NONE = 0
+        const val REPEAT_WEEKLY = 1
+        const val REPEAT_MONTHLY = 2
+        const val REPEAT_DAILY = 3
+        const val REPEAT_YEARLY = 4
+
+        fun parse(text: String?): RecurrenceRule? {
+            if (text.isNullOrBlank()) return null
+            var freq: Freq? = null
+            var interval = 1
+            var byMonthDay = 0
+            var byMonth = 0
+            var byWeekday: DayOfWeek? = null
+            var ordinal = 0
+            for (part in text.split(';')) {
+                val key = part.substringBefore('=').trim().uppercase()
+                val value = part.substringAfter('=', "").trim().uppercase()
+                when (key) {
+                    "FREQ" -> freq = Freq.values().firstOrNull { it.name == value } ?: return null
+                    "INTERVAL" -> interval = value.toIntOrNull()?.takeIf { it in 1..999 } ?: return null
+                    "BYMONTHDAY" -> byMonthDay = value.toIntOrNull()?.takeIf { it in 1..31 } ?: return null
+                    "BYMONTH" -> byMonth = value.toIntOrNull()?.takeIf { it in 1..12 } ?: return null
+                    "BYDAY" -> {
+                        val day = DAY_CODES.indexOf(value.takeLast(2))
+                        val n = value.dropLast(2).ifEmpty { "1" }.toIntOrNull()
+                        if (day < 0 || n == null || n == 0 || n !in -5..5) return null
+                        byWeekday = DayOfWeek.values()[day]
+                        ordinal = n
+                    }
+                }
+            }
+            return RecurrenceRule(freq ?: return null, interval, byMonthDay, byWeekday, ordinal, byMonth)
+        }
+
+        // The rule a dialog repeat mode stands for; monthly pins the anchor's day of month and
+        // yearly its month and day, so a 31st (or Feb 29) doesn't drift after a short month
+        fun forRepeatMode(repeatMode: Int, anchorMillis: Long, zone: ZoneId = ZoneId.systemDefault()): RecurrenceRule? {
+            val anchor = Instant.ofEpochMilli(anchorMillis).atZone(zone)
+            return when (repeatMode) {
+                REPEAT_WEEKLY -> RecurrenceRule(Freq.WEEKLY)
+                REPEAT_MONTHLY -> RecurrenceRule(Freq.MONTHLY, byMonthDay = anchor.dayOfMonth)
+                REPEAT_DAILY -> RecurrenceRule(Freq.DAILY)
+                REPEAT_YEARLY -> RecurrenceRule(Freq.YEARLY, byMonthDay = anchor.dayOfMonth, byMonth = anchor.monthValue)
+                else -> null
+            }
+        }
+
+        // Effective rule for a row: the stored rule, else the legacy repeatMode / isMonthly flags
+        fun of(recurrence: String?, repeatMode: Int, isMonthly: Boolean, anchorMillis: Long): RecurrenceRule? =
+            RecurrenceEngine.parse(recurrence)
+                ?: forRepeatMode(if (repeatMode == REPEAT_NONE && isMonthly) REPEAT_MONTHLY else repeatMode, anchorMillis)
+    }
+}
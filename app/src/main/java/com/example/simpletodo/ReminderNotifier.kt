@@ -0,0 +1,131 @@
+package com.example.simpletodo
+
+import android.Manifest
+import android.app.NotificationChannel
+import android.app.NotificationManager
+import android.app.PendingIntent
+import android.content.Context
+import android.content.Intent
+import android.content.pm.PackageManager
+import androidx.core.app.ActivityCompat
+import androidx.core.app.NotificationCompat
+import androidx.core.app.NotificationManagerCompat
+import java.util.concurrent.atomic.AtomicBoolean
+
+// Posts reminder notifications. A pass with several reminders becomes one group: an InboxStyle
+// summary that alerts once, plus a silent child per todo carrying its own Done action.
+object ReminderNotifier {
+    private const val GROUP_KEY = "com.example.simpletodo.REMINDERS"
+    private const val SUMMARY_ID = -1 // Todo ids start at 1
+    private const val SUMMARY_LINES = 6
+    private const val MAX_CHILDREN = 40 // The platform drops posts past ~50 active notifications per app
+
+    private val channelCreated = AtomicBoolean(false)
+
+    // Returns whether anything was posted
+    fun post(context: Context, todos: List<ReminderTarget>): Boolean {
+        if (todos.isEmpty()) return false
+        if (ActivityCompat.checkSelfPermission(
+                context,
+                Manifest.permission.POST_NOTIFICATIONS
+            ) != PackageManager.PERMISSION_GRANTED
+        ) {
+            AppLogger.log(context, "ReminderNotifier", "Permission POST_NOTIFICATIONS Denied!")
+            return false
+        }
+        ensureChannel(context)
+        val manager = NotificationManagerCompat.from(context)
+
+        if (todos.size == 1) {
+            val todo = todos.first()
+            manager.notify(todo.id.toInt(), itemBuilder(context, todo).build())
+            AppLogger.log(context, "ReminderNotifier", "Notification Posted for ID: ${todo.id}")
+            return true
+        }
+
+        todos.take(MAX_CHILDREN).forEach { todo ->
+            val child = itemBuilder(context, todo)
+                .setGroup(GROUP_KEY)
+                .setGroupAlertBehavior(NotificationCompat.GROUP_ALERT_SUMMARY)
+                .build()
+            manager.notify(todo.id.toInt(), child)
+        }
+
+        val style = NotificationCompat.InboxStyle()
+        todos.take(SUMMARY_LINES).forEach { style.addLine(it.name) }
+        if (todos.size > SUMMARY_LINES) style.setSummaryText("+${todos.size - SUMMARY_LINES} more")
+
+        val summary = NotificationCompat.Builder(context, ReminderReceiver.CHANNEL_ID)
+            .setSmallIcon(android.R.drawable.ic_lock_idle_alarm)
+            .setContentTitle("${todos.size} Todo Reminders")
+            .setContentText(todos.joinToString(", ") { it.name })
+            .setStyle(style)
+            .setPriority(NotificationCompat.PRIORITY_HIGH)
+            .setContentIntent(appPendingIntent(context))
+            .setGroup(GROUP_KEY)
+            .setGroupSummary(true)
+            .setAutoCancel(true)
+            .build()
+        manager.notify(SUMMARY_ID, summary)
+        AppLogger.log(context, "ReminderNotifier", "Grouped notification posted for ${todos.size} reminders")
+        return true
+    }
+
+    // Removes one item; the summary goes too once no grouped item is left
+    fun dismiss(context: Context, todoId: Long) {
+        val manager = context.getSystemService(NotificationManager::class.java)
+        manager.cancel(todoId.toInt())
+        val groupLeft = manager.activeNotifications.any {
+            it.id != SUMMARY_ID && it.id != todoId.toInt() && it.notification.group == GROUP_KEY
+        }
+        if (!groupLeft) manager.cancel(SUMMARY_ID)
+    }
+
+    private fun itemBuilder(context: Context, todo: ReminderTarget): NotificationCompat.Builder {
+        val doneIntent = Intent(context, ReminderReceiver::class.java).apply {
+            action = ReminderReceiver.ACTION_DONE
+            putExtra(ReminderReceiver.EXTRA_ID, todo.id)
+        }
+        val donePendingIntent = PendingIntent.getBroadcast(
+            context,
+            todo.id.toInt() + 10000, // Unique Request Code
+            doneIntent,
+            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
+        )
+
+        return NotificationCompat.Builder(context, ReminderReceiver.CHANNEL_ID)
+            .setSmallIcon(android.R.drawable.ic_lock_idle_alarm)
+            .setContentTitle("Todo Reminder")
+            .setContentText(todo.name)
+            .setPriority(NotificationCompat.PRIORITY_HIGH)
+            .setContentIntent(appPendingIntent(context))
+            .addAction(android.R.drawable.ic_lock_idle_alarm, "Done", donePendingIntent)
+            .setAutoCancel(true)
+    }
+
+    private fun appPendingIntent(context: Context): PendingIntent {
+        val appIntent = Intent(context, MainActivity::class.java)
+        return PendingIntent.getActivity(
+            context,
+            0,
+            appIntent,
+            PendingIntent.FLAG_IMMUTABLE
+        )
+    }
+
+    // Channel creation is an IPC; once per process is enough
+    private fun ensureChannel(context: Context) {
+        if (!channelCreated.compareAndSet(false, true)) return
+        val channel = NotificationChannel(
+            ReminderReceiver.CHANNEL_ID,
+            "Todo Reminders",
+            NotificationManager.IMPORTANCE_HIGH
+        ).apply {
+            description = "Notifications for todo tasks"
+            enableLights(true)
+            enableVibration(true)
+        }
+        val manager = context.getSystemService(NotificationManager::class.java)
+        manager.createNotificationChannel(channel)
+    }
+}
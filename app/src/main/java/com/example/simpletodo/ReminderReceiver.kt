@@ -1,23 +1,11 @@
 package com.example.simpletodo
 
-import android.Manifest
-import android.app.AlarmManager
-import android.app.NotificationChannel
-import android.app.NotificationManager
-import android.app.PendingIntent
 import android.content.BroadcastReceiver
 import android.content.Context
 import android.content.Intent
-import android.content.pm.PackageManager
-import android.os.Build
-import androidx.core.app.ActivityCompat
-import androidx.core.app.NotificationCompat
-import androidx.core.app.NotificationManagerCompat
-import kotlinx.coroutines.CoroutineScope
-import kotlinx.coroutines.Dispatchers
-import kotlinx.coroutines.SupervisorJob
+import android.os.Process
+import android.os.SystemClock
 import kotlinx.coroutines.launch
-import java.util.Calendar
 import java.util.Date
 
 class ReminderReceiver : BroadcastReceiver() {
@@ -28,214 +16,163 @@ class ReminderReceiver : BroadcastReceiver() {
         const val EXTRA_ID = "extra_id"
         const val CHANNEL_ID = "todo_channel"
         const val MAX_RETRIES = 3
-    }
 
-    private val scope = CoroutineScope(SupervisorJob() + Dispatchers.IO)
+        // Broadcasts after which the queue or the armed alarm may be stale
+        private val RECONCILE_ACTIONS = setOf(
+            Intent.ACTION_BOOT_COMPLETED,
+            Intent.ACTION_TIME_CHANGED,
+            Intent.ACTION_TIMEZONE_CHANGED,
+            Intent.ACTION_MY_PACKAGE_REPLACED
+        )
+        private const val DUE_BATCH = 100
+    }
 
     override fun onReceive(context: Context, intent: Intent) {
+        val receivedAt = SystemClock.elapsedRealtime()
+        val coldStart = AppRuntime.claimColdStart()
+        if (coldStart) {
+            AppMetrics.record(context, "process.start_to_receive", receivedAt - Process.getStartElapsedRealtime())
+        }
         val pendingResult = goAsync()
-        val powerManager = context.getSystemService(Context.POWER_SERVICE) as android.os.PowerManager
-        val wakeLock = powerManager.newWakeLock(android.os.PowerManager.PARTIAL_WAKE_LOCK, "SimpleTodo:ReminderWakeLock")
-        wakeLock.acquire(10 * 60 * 1000L /*10 minutes*/)
+        val wakeLock = WakeLockManager.acquire(
+            context,
+            when (intent.action) {
+                Intent.ACTION_BOOT_COMPLETED -> WakeLockManager.ACTION_BOOT
+                in RECONCILE_ACTIONS -> WakeLockManager.ACTION_RECONCILE
+                ACTION_DONE -> WakeLockManager.ACTION_DONE
+                else -> WakeLockManager.ACTION_REMINDER
+            }
+        )
         
         AppLogger.log(context, "ReminderReceiver", "onReceive triggered. Action: ${intent.action}")
 
-        scope.launch {
+        AppRuntime.scope.launch {
             try {
                 val db = TodoDatabase.getDatabase(context)
 
                 if (intent.action == Intent.ACTION_BOOT_COMPLETED) {
+                    // The queue survives reboot; only the platform alarm is lost
                     AppLogger.log(context, "ReminderReceiver", "Handling Boot Completed")
-                    rescheduleAllAlarms(context, db)
-                } else {
+                    val start = SystemClock.elapsedRealtime()
+                    AlarmScheduler.reconcile(context, "boot")
+                    AppMetrics.record(context, "boot.reschedule", SystemClock.elapsedRealtime() - start)
+                } else if (intent.action in RECONCILE_ACTIONS) {
+                    AlarmScheduler.reconcile(context, intent.action!!.substringAfterLast('.'))
+                } else if (intent.action == ACTION_DONE) {
                     val id = intent.getLongExtra(EXTRA_ID, -1)
                     AppLogger.log(context, "ReminderReceiver", "Received ID: $id")
-                    if (id != -1L) {
-                        val todo = db.todoDao().getTodoById(id)
-                        if (todo != null) {
-                            if (intent.action == ACTION_DONE) {
-                                AppLogger.log(context, "ReminderReceiver", "Marking DONE for: ${todo.name}")
-                                handleDone(context, todo, db)
-                                NotificationManagerCompat.from(context).cancel(id.toInt())
-                            } else {
-                                AppLogger.log(context, "ReminderReceiver", "Handling Reminder for: ${todo.name}")
-                                handleReminder(context, todo, db)
-                            }
-                        } else {
-                            AppLogger.log(context, "ReminderReceiver", "Todo not found for ID: $id")
-                        }
+                    val todo = if (id != -1L) db.todoDao().getReminderTarget(id) else null
+                    if (todo != null) {
+                        AppLogger.log(context, "ReminderReceiver", "Marking DONE for: ${todo.name}")
+                        handleDone(context, todo, db)
+                        ReminderNotifier.dismiss(context, id)
+                    } else {
+                        AppLogger.log(context, "ReminderReceiver", "Todo not found for ID: $id")
                     }
+                } else {
+                    // The queue alarm (and any per-todo alarm left by older builds): handle everything due now
+                    processDueAlarms(context, db, receivedAt, coldStart)
                 }
             } catch (e: Exception) {
                 AppLogger.log(context, "ReminderReceiver", "Error: ${e.message}")
                 e.printStackTrace()
             } finally {
-                if (wakeLock.isHeld) wakeLock.release()
+                // Release first: it records the hold time and may log, and all of it must be flushed
+                WakeLockManager.release(context, wakeLock)
+                AppLogger.flush(context)
                 pendingResult.finish()
             }
         }
     }
 
-    private suspend fun rescheduleAllAlarms(context: Context, db: TodoDatabase) {
-        try {
-            val todos = db.todoDao().getAllTodosList() 
-            val now = System.currentTimeMillis()
-            var count = 0
-            todos.forEach { todo ->
-                if (!todo.isDone && todo.timeInMillis > now) {
-                    scheduleAlarm(context, todo.id, todo.timeInMillis)
-                    count++
+    // One wake-up handles every queued reminder due within the coalesce window, posts them
+    // as a single (grouped) notification, then arms the next one
+    private suspend fun processDueAlarms(context: Context, db: TodoDatabase, receivedAt: Long, coldStart: Boolean) {
+        val now = System.currentTimeMillis()
+        val until = now + ReminderSettings.coalesceWindowMillis(context)
+        val queue = db.alarmQueueDao()
+        val retryPolicy = ReminderSettings.retryPolicy(context)
+        val quiet = ReminderSettings.quietWindows(context)
+        val notify = mutableListOf<ReminderTarget>()
+        var handled = 0
+        var deferred = 0
+        var afterTime = Long.MIN_VALUE
+        var afterId = Long.MIN_VALUE
+        while (true) {
+            val due = queue.getDuePage(until, afterTime, afterId, DUE_BATCH)
+            if (due.isEmpty()) break
+            afterTime = due.last().triggerAt
+            afterId = due.last().todoId
+
+            val targets = db.todoDao().getReminderTargets(due.map { it.todoId }).associateBy { it.id }
+            val retries = mutableListOf<ScheduledAlarm>()
+            val finished = mutableListOf<Long>()
+            due.forEach { alarm ->
+                val todo = targets[alarm.todoId]
+                // Inside a quiet window as of now (e.g. a retry that came due overnight, or one due just
+                // before the window but delivered late): leave it queued
+                if (todo != null && !todo.isDone &&
+                    QuietHours.nextAllowed(maxOf(alarm.triggerAt, now), quiet, isRetry = todo.remindCount > 0) > until
+                ) {
+                    deferred++
+                    return@forEach
                 }
+                if (todo != null && !todo.isDone) notify.add(todo)
+                val retryAt = if (todo != null) handleReminder(context, todo, db, retryPolicy, now) else null
+                if (retryAt != null) retries.add(ScheduledAlarm(alarm.todoId, retryAt)) else finished.add(alarm.todoId)
             }
-            AppLogger.log(context, "ReminderReceiver", "Rescheduled $count alarms")
-        } catch (e: Exception) {
-            AppLogger.log(context, "ReminderReceiver", "Reschedule Error: ${e.message}")
-            e.printStackTrace()
+            // Retries are at least the 1h minimum interval out, past `until`
+            queue.applyChanges(retries, finished)
+            handled += due.size
+            if (due.size < DUE_BATCH) break
+        }
+        if (ReminderNotifier.post(context, notify)) {
+            // Broadcast received -> notification posted, split by whether this process was just started
+            val metric = if (coldStart) "notify.latency.cold" else "notify.latency.warm"
+            AppMetrics.record(context, metric, SystemClock.elapsedRealtime() - receivedAt)
         }
+        AppLogger.log(context, "ReminderReceiver", "Handled ${handled - deferred} due reminder(s), $deferred deferred by quiet hours")
+        AlarmScheduler.rearm(context, force = true) // The armed alarm was just consumed
     }
 
-    private suspend fun handleDone(context: Context, todo: TodoItem, db: TodoDatabase) {
-        if (todo.isMonthly) {
-            // Move to next month
-            val calendar = Calendar.getInstance()
-            calendar.timeInMillis = todo.timeInMillis
-            calendar.add(Calendar.MONTH, 1)
-            
-            val nextTime = calendar.timeInMillis
-            val updatedTodo = todo.copy(
-                timeInMillis = nextTime,
-                remindCount = 0,
-                isDone = false
-            )
-            db.todoDao().update(updatedTodo)
-            scheduleAlarm(context, updatedTodo.id, nextTime)
-            AppLogger.log(context, "ReminderReceiver", "Rescheduled Monthly Task to: ${Date(nextTime)}")
+    private suspend fun handleDone(context: Context, todo: ReminderTarget, db: TodoDatabase) {
+        val rule = RecurrenceRule.of(todo.recurrence, todo.repeatMode, todo.isMonthly, todo.timeInMillis)
+        if (rule != null) {
+            // Move to the next occurrence
+            val nextTime = RecurrenceEngine.nextAfter(rule, todo.timeInMillis, System.currentTimeMillis())
+            db.todoDao().rollForward(todo.id, nextTime)
+            AlarmScheduler.schedule(context, todo.id, nextTime)
+            AppLogger.log(context, "ReminderReceiver", "Rescheduled Recurring Task (${rule.format()}) to: ${Date(nextTime)}")
         } else {
             // Mark as done
-            val updatedTodo = todo.copy(isDone = true)
-            db.todoDao().update(updatedTodo)
+            db.todoDao().markDoneById(todo.id)
+            AlarmScheduler.cancel(context, todo.id)
             AppLogger.log(context, "ReminderReceiver", "Task Marked Done")
         }
     }
 
-    private suspend fun handleReminder(context: Context, todo: TodoItem, db: TodoDatabase) {
-        if (todo.isDone) return
-
-        // Show Notification
-        showNotification(context, todo)
+    // Returns the retry time to queue, or null when the todo needs no further reminders
+    private suspend fun handleReminder(
+        context: Context,
+        todo: ReminderTarget,
+        db: TodoDatabase,
+        retryPolicy: RetryPolicy,
+        now: Long
+    ): Long? {
+        if (todo.isDone) return null
 
         // Schedule next retry if needed
         if (todo.remindCount < todo.maxRetries) {
-            val intervalMillis = todo.retryIntervalHours * 60 * 60 * 1000L
-            val nextRetryTime = System.currentTimeMillis() + intervalMillis
+            val nextRetryTime = retryPolicy.nextRetryAt(now, todo.remindCount + 1, todo.retryIntervalHours)
             // Update count
-            val updatedTodo = todo.copy(remindCount = todo.remindCount + 1)
-            db.todoDao().update(updatedTodo)
+            db.todoDao().incrementRemindCount(todo.id)
             
-            // Schedule Retry Alarm
-            scheduleAlarm(context, todo.id, nextRetryTime)
-            AppLogger.log(context, "ReminderReceiver", "Scheduled Retry #${updatedTodo.remindCount} at ${Date(nextRetryTime)} (Interval: ${todo.retryIntervalHours}h)")
+            // Retry is queued by the caller
+            AppLogger.log(context, "ReminderReceiver", "Scheduled Retry #${todo.remindCount + 1} at ${Date(nextRetryTime)} (Interval: ${todo.retryIntervalHours}h, ${retryPolicy.key})")
+            return nextRetryTime
         } else {
             AppLogger.log(context, "ReminderReceiver", "Max Retries Reached for: ${todo.name}")
-        }
-    }
-
-    private fun showNotification(context: Context, todo: TodoItem) {
-        createChannel(context)
-
-        val doneIntent = Intent(context, ReminderReceiver::class.java).apply {
-            action = ACTION_DONE
-            putExtra(EXTRA_ID, todo.id)
-        }
-        val donePendingIntent = PendingIntent.getBroadcast(
-            context,
-            todo.id.toInt() + 10000, // Unique Request Code
-            doneIntent,
-            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
-        )
-
-        // Open App Intent
-        val appIntent = Intent(context, MainActivity::class.java)
-        val appPendingIntent = PendingIntent.getActivity(
-            context, 
-            0, 
-            appIntent, 
-            PendingIntent.FLAG_IMMUTABLE
-        )
-
-        val builder = NotificationCompat.Builder(context, CHANNEL_ID)
-            .setSmallIcon(android.R.drawable.ic_lock_idle_alarm)
-            .setContentTitle("Todo Reminder")
-            .setContentText(todo.name)
-            .setPriority(NotificationCompat.PRIORITY_HIGH)
-            .setContentIntent(appPendingIntent)
-            .addAction(android.R.drawable.ic_lock_idle_alarm, "Done", donePendingIntent)
-            .setAutoCancel(true)
-
-        if (ActivityCompat.checkSelfPermission(
-                context,
-                Manifest.permission.POST_NOTIFICATIONS
-            ) == PackageManager.PERMISSION_GRANTED
-        ) {
-            NotificationManagerCompat.from(context).notify(todo.id.toInt(), builder.build())
-            AppLogger.log(context, "ReminderReceiver", "Notification Posted for ID: ${todo.id}")
-        } else {
-            AppLogger.log(context, "ReminderReceiver", "Permission POST_NOTIFICATIONS Denied!")
-        }
-    }
-
-    private fun createChannel(context: Context) {
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
-            val channel = NotificationChannel(
-                CHANNEL_ID,
-                "Todo Reminders",
-                NotificationManager.IMPORTANCE_HIGH
-            ).apply {
-                description = "Notifications for todo tasks"
-                enableLights(true)
-                enableVibration(true)
-            }
-            val manager = context.getSystemService(NotificationManager::class.java)
-            manager.createNotificationChannel(channel)
-        }
-    }
-
-    private fun scheduleAlarm(context: Context, id: Long, timeInMillis: Long) {
-        val alarmManager = context.getSystemService(AlarmManager::class.java)
-        val intent = Intent(context, ReminderReceiver::class.java).apply {
-            action = ACTION_REMINDER
-            putExtra(EXTRA_ID, id)
-        }
-        val pendingIntent = PendingIntent.getBroadcast(
-            context,
-            id.toInt(),
-            intent,
-            PendingIntent.FLAG_UPDATE_CURRENT or PendingIntent.FLAG_IMMUTABLE
-        )
-
-        AppLogger.log(context, "ReminderReceiver", "Scheduling Alarm for ID: $id at ${Date(timeInMillis)}")
-
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-            if (alarmManager.canScheduleExactAlarms()) {
-                 alarmManager.setExactAndAllowWhileIdle(
-                    AlarmManager.RTC_WAKEUP,
-                    timeInMillis,
-                    pendingIntent
-                )
-            } else {
-                AppLogger.log(context, "ReminderReceiver", "Cannot schedule exact alarm! Using inexact.")
-                 alarmManager.setAndAllowWhileIdle(
-                    AlarmManager.RTC_WAKEUP,
-                    timeInMillis,
-                    pendingIntent
-                )
-            }
-        } else {
-             alarmManager.setExactAndAllowWhileIdle(
-                AlarmManager.RTC_WAKEUP,
-                timeInMillis,
-                pendingIntent
-            )
+            return null
         }
     }
 }
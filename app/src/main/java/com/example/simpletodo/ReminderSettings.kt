@@ -0,0 +1,68 @@
+package com.example.simpletodo
+
+import android.content.Context
+import kotlinx.coroutines.launch
+
+// User-tunable reminder behaviour, kept in its own prefs file like LogRetention.
+object ReminderSettings {
+    private const val PREFS = "reminder_settings"
+    private const val KEY_COALESCE_WINDOW_MILLIS = "coalesce_window_millis"
+    private const val KEY_RETRY_POLICY = "retry_policy"
+    private const val KEY_RETRY_SLOT_MILLIS = "retry_slot_millis"
+    private const val KEY_QUIET_WINDOWS = "quiet_windows"
+
+    // Off until the user opts in (QuietHoursDialog)
+    val DEFAULT_QUIET_WINDOWS = emptyList<QuietWindow>()
+    // What the dialog proposes when turning it on: retries held back overnight, due times the
+    // user picked still fire
+    val SUGGESTED_QUIET_WINDOW = QuietWindow(23 * 60, 7 * 60, retriesOnly = true)
+
+    // Reminders due within this window of each other fire in the same pass and share one summary
+    const val DEFAULT_COALESCE_WINDOW_MILLIS = 5 * 60 * 1000L
+    const val MAX_COALESCE_WINDOW_MILLIS = 30 * 60 * 1000L // Below the shortest retry interval (1h)
+
+    fun coalesceWindowMillis(context: Context): Long =
+        prefs(context).getLong(KEY_COALESCE_WINDOW_MILLIS, DEFAULT_COALESCE_WINDOW_MILLIS)
+
+    fun configure(context: Context, coalesceWindowMillis: Long) {
+        prefs(context).edit()
+            .putLong(KEY_COALESCE_WINDOW_MILLIS, coalesceWindowMillis.coerceIn(0, MAX_COALESCE_WINDOW_MILLIS))
+            .apply()
+    }
+
+    fun retryPolicy(context: Context): RetryPolicy =
+        when (prefs(context).getString(KEY_RETRY_POLICY, AlignedRetryPolicy.KEY)) {
+            FixedRetryPolicy.KEY -> FixedRetryPolicy
+            ExponentialBackoffRetryPolicy.KEY -> ExponentialBackoffRetryPolicy
+            else -> AlignedRetryPolicy(retrySlotMillis(context))
+        }
+
+    fun retrySlotMillis(context: Context): Long =
+        prefs(context).getLong(KEY_RETRY_SLOT_MILLIS, AlignedRetryPolicy.DEFAULT_SLOT_MS)
+
+    // policyKey: one of the RetryPolicy keys ("fixed", "backoff", "aligned")
+    fun configureRetry(context: Context, policyKey: String, slotMillis: Long = AlignedRetryPolicy.DEFAULT_SLOT_MS) {
+        prefs(context).edit()
+            .putString(KEY_RETRY_POLICY, policyKey)
+            .putLong(KEY_RETRY_SLOT_MILLIS, slotMillis.coerceIn(60_000L, 60 * 60 * 1000L))
+            .apply()
+    }
+
+    fun quietWindows(context: Context): List<QuietWindow> {
+        val stored = prefs(context).getString(KEY_QUIET_WINDOWS, null) ?: return DEFAULT_QUIET_WINDOWS
+        return QuietWindow.parseAll(stored)
+    }
+
+    // An empty list turns quiet hours off. The armed alarm was placed around the old windows,
+    // so it is re-armed.
+    fun configureQuietHours(context: Context, windows: List<QuietWindow>) {
+        prefs(context).edit()
+            .putString(KEY_QUIET_WINDOWS, QuietWindow.formatAll(windows))
+            .apply()
+        val appContext = context.applicationContext
+        AppRuntime.scope.launch { AlarmScheduler.rearm(appContext, force = true) }
+    }
+
+    private fun prefs(context: Context) =
+        context.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+}
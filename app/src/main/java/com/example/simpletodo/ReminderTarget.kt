@@ -0,0 +1,16 @@
+package com.example.simpletodo
+
+// Compact projection of todo_items for the alarm broadcast path: no remarks, no attachments,
+// nothing the receiver doesn't read.
+data class ReminderTarget(
+    val id: Long,
+    val name: String,
+    val timeInMillis: Long,
+    val isMonthly: Boolean,
+    val remindCount: Int,
+    val isDone: Boolean,
+    val maxRetries: Int,
+    val retryIntervalHours: Int,
+    val repeatMode: Int,
+    val recurrence: String?
+)
@@ -0,0 +1,55 @@
+package com.example.simpletodo
+
+// Decides when an unanswered reminder fires again. `attempt` is the 1-based retry number
+// (remindCount + 1) and `intervalHours` is the todo's retryIntervalHours.
+interface RetryPolicy {
+    val key: String
+
+    fun nextRetryAt(now: Long, attempt: Int, intervalHours: Int): Long
+
+    companion object {
+        private const val HOUR_MS = 60 * 60 * 1000L
+
+        fun intervalMillis(intervalHours: Int): Long = intervalHours.coerceAtLeast(1) * HOUR_MS
+    }
+}
+
+// The original behaviour: every retry is one interval after the last reminder
+object FixedRetryPolicy : RetryPolicy {
+    const val KEY = "fixed"
+    override val key = KEY
+
+    override fun nextRetryAt(now: Long, attempt: Int, intervalHours: Int): Long =
+        now + RetryPolicy.intervalMillis(intervalHours)
+}
+
+// Doubles the interval on every retry (1x, 2x, 4x, ...), capped at a day
+object ExponentialBackoffRetryPolicy : RetryPolicy {
+    const val KEY = "backoff"
+    override val key = KEY
+    private const val MAX_DELAY_MS = 24 * 60 * 60 * 1000L
+
+    override fun nextRetryAt(now: Long, attempt: Int, intervalHours: Int): Long {
+        val shift = (attempt - 1).coerceIn(0, 16)
+        val delay = (RetryPolicy.intervalMillis(intervalHours) shl shift).coerceAtMost(MAX_DELAY_MS)
+        return now + delay
+    }
+}
+
+// Fixed interval, then rounded up to the next shared slot boundary (multiples of slotMillis since
+// the epoch). Retries from different todos land on the same instants, so the due queue fires once
+// for all of them instead of once per todo. Delays by at most one slot.
+class AlignedRetryPolicy(private val slotMillis: Long = DEFAULT_SLOT_MS) : RetryPolicy {
+    override val key = KEY
+
+    override fun nextRetryAt(now: Long, attempt: Int, intervalHours: Int): Long {
+        val target = now + RetryPolicy.intervalMillis(intervalHours)
+        val remainder = target % slotMillis
+        return if (remainder == 0L) target else target - remainder + slotMillis
+    }
+
+    companion object {
+        const val KEY = "aligned"
+        const val DEFAULT_SLOT_MS = 15 * 60 * 1000L
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.simpletodo
+
+import androidx.room.Entity
+import androidx.room.ForeignKey
+import androidx.room.Index
+import androidx.room.PrimaryKey
+
+// v1.7: the reminder due queue. One row per todo with its next trigger (first reminder or retry);
+// only the earliest row is armed with AlarmManager (see AlarmScheduler).
+@Entity(
+    tableName = "scheduled_alarms",
+    foreignKeys = [
+        ForeignKey(
+            entity = TodoItem::class,
+            parentColumns = ["id"],
+            childColumns = ["todoId"],
+            onDelete = ForeignKey.CASCADE
+        )
+    ],
+    indices = [Index(value = ["triggerAt"])]
+)
+data class ScheduledAlarm(
+    @PrimaryKey val todoId: Long,
+    val triggerAt: Long
+)
+
+// Result of AlarmQueueDao.reconcile, in queue rows
+data class Reconciliation(val added: Int, val fixed: Int, val removed: Int) {
+    val changed: Int get() = added + fixed + removed
+}
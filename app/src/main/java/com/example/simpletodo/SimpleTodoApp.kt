@@ -0,0 +1,50 @@
+package com.example.simpletodo
+
+import android.app.Application
+import android.content.ComponentCallbacks2
+import coil.ImageLoader
+import coil.ImageLoaderFactory
+import coil.disk.DiskCache
+import coil.imageLoader
+import coil.memory.MemoryCache
+
+class SimpleTodoApp : Application(), ImageLoaderFactory {
+    override fun onCreate() {
+        super.onCreate()
+        AppRuntime.prewarm(this)
+        MaintenanceWorker.schedule(this)
+    }
+
+    // App-wide Coil loader (picked up by every AsyncImage). Attachments are local files shown as
+    // small thumbnails, so the memory budget is modest and the disk cache only backs other sources.
+    override fun newImageLoader(): ImageLoader =
+        ImageLoader.Builder(this)
+            .memoryCache {
+                MemoryCache.Builder(this)
+                    .maxSizePercent(MEMORY_CACHE_PERCENT)
+                    .build()
+            }
+            .diskCache {
+                DiskCache.Builder()
+                    .directory(cacheDir.resolve("image_cache"))
+                    .maxSizeBytes(DISK_CACHE_BYTES)
+                    .build()
+            }
+            .build()
+
+    override fun onTrimMemory(level: Int) {
+        super.onTrimMemory(level)
+        val memoryCache = imageLoader.memoryCache ?: return
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            // In the background: decoded thumbnails are cheap to rebuild
+            memoryCache.clear()
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            memoryCache.trimMemory(level)
+        }
+    }
+
+    companion object {
+        private const val MEMORY_CACHE_PERCENT = 0.10
+        private const val DISK_CACHE_BYTES = 32L * 1024 * 1024
+    }
+}
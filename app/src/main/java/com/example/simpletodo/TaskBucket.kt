@@ -0,0 +1,26 @@
+package com.example.simpletodo
+
+// Time buckets for the main list. Ranges are half-open [from, to) relative to an anchor time,
+// so each bucket maps directly onto TodoDao.pagePendingBetween.
+enum class TaskBucket(val title: String) {
+    WITHIN_3_DAYS("Within 3 Days"),
+    NEXT_7_DAYS("Next 7 Days"),
+    FURTHER("Further");
+
+    fun from(now: Long): Long = when (this) {
+        WITHIN_3_DAYS -> Long.MIN_VALUE // Overdue tasks stay in the first bucket
+        NEXT_7_DAYS -> now + THREE_DAYS + 1
+        FURTHER -> now + SEVEN_DAYS + 1
+    }
+
+    fun to(now: Long): Long = when (this) {
+        WITHIN_3_DAYS -> now + THREE_DAYS + 1
+        NEXT_7_DAYS -> now + SEVEN_DAYS + 1
+        FURTHER -> Long.MAX_VALUE
+    }
+
+    companion object {
+        const val THREE_DAYS = 3 * 24 * 60 * 60 * 1000L
+        const val SEVEN_DAYS = 7 * 24 * 60 * 60 * 1000L
+    }
+}
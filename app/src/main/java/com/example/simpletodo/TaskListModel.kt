@@ -0,0 +1,81 @@
+package com.example.simpletodo
+
+// Precomputed, immutable model rendered by TaskListScreen. Built off the main thread by
+// TodoViewModel; the composable only reads it.
+data class TaskListModel(
+    val anchor: Long,
+    val sections: List<TaskSection>,
+    val loaded: Boolean = true
+) {
+    val isEmpty: Boolean get() = loaded && sections.all { it.count == 0 }
+
+    companion object {
+        fun loading(anchor: Long) = TaskListModel(anchor, emptyList(), loaded = false)
+
+        fun fromCounts(anchor: Long, counts: IntArray): TaskListModel {
+            val sections = TaskBucket.values().mapIndexed { index, bucket ->
+                TaskSection(bucket, bucket.from(anchor), bucket.to(anchor), counts[index])
+            }
+            return TaskListModel(anchor, sections)
+        }
+    }
+}
+
+data class TaskSection(
+    val bucket: TaskBucket,
+    val from: Long,
+    val to: Long,
+    val count: Int
+)
+
+// Pending todos by due time, with per-bucket counts kept up to date incrementally.
+// Seeded once from the database, then patched from TodoChangeFeed in O(changes);
+// only a re-anchor walks every entry. Not thread-safe: TodoViewModel guards it with a Mutex.
+class PendingDueIndex {
+    private val dueById = HashMap<Long, Long>()
+    private val counts = IntArray(TaskBucket.values().size)
+    private var anchor = 0L
+
+    fun reset(anchor: Long, pending: List<TodoDueState>) {
+        dueById.clear()
+        pending.forEach { if (!it.isDone) dueById[it.id] = it.timeInMillis }
+        reanchor(anchor)
+    }
+
+    fun reanchor(anchor: Long) {
+        this.anchor = anchor
+        counts.fill(0)
+        dueById.values.forEach { counts[bucketIndex(it)]++ }
+    }
+
+    // states: current rows for changes.touched (missing ids were deleted in the meantime)
+    fun apply(changes: TodoChangeSet, states: List<TodoDueState>) {
+        changes.deleted.forEach { remove(it) }
+        val stateById = states.associateBy { it.id }
+        changes.touched.forEach { id ->
+            val state = stateById[id]
+            if (state == null || state.isDone) remove(id) else put(id, state.timeInMillis)
+        }
+    }
+
+    fun toModel(): TaskListModel = TaskListModel.fromCounts(anchor, counts)
+
+    private fun put(id: Long, timeInMillis: Long) {
+        remove(id)
+        dueById[id] = timeInMillis
+        counts[bucketIndex(timeInMillis)]++
+    }
+
+    private fun remove(id: Long) {
+        val previous = dueById.remove(id) ?: return
+        counts[bucketIndex(previous)]--
+    }
+
+    private fun bucketIndex(timeInMillis: Long): Int {
+        val buckets = TaskBucket.values()
+        for (index in 0 until buckets.lastIndex) {
+            if (timeInMillis < buckets[index].to(anchor)) return index
+        }
+        return buckets.lastIndex
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.simpletodo
+
+import android.content.Context
+import android.graphics.Bitmap
+import android.graphics.BitmapFactory
+import java.io.File
+import java.io.FileOutputStream
+
+// Pre-scaled copies of attachments for list rows and the edit dialog, in filesDir/thumbs.
+// One file per (attachment, size): <image name>_<px>.jpg. Only ImagePreviewDialog decodes originals.
+object Thumbnails {
+    // Long edge in px, enough for the 60dp row tile / 40dp dialog tile at xxhdpi (3x)
+    const val ROW_PX = 192
+    const val DIALOG_PX = 128
+    val SIZES = intArrayOf(ROW_PX, DIALOG_PX)
+
+    private const val DIR = "thumbs"
+    private const val PREFS = "thumbnails"
+    private const val KEY_FAILED = "failed_paths"
+    private const val QUALITY = 80
+
+    fun dir(context: Context): File = File(context.filesDir, DIR)
+
+    fun file(context: Context, imagePath: String, sizePx: Int): File =
+        File(dir(context), "${File(imagePath).nameWithoutExtension}_$sizePx.jpg")
+
+    // Existing thumbnail for the closest size, or null (callers then fall back to the original)
+    fun find(context: Context, imagePath: String, sizePx: Int): File? =
+        file(context, imagePath, sizePx).takeIf { it.exists() }
+
+    // From a bitmap the import pipeline already has in memory, so no extra decode
+    fun generate(context: Context, imagePath: String, source: Bitmap) {
+        dir(context).mkdirs()
+        SIZES.forEach { sizePx -> write(context, imagePath, source, sizePx) }
+    }
+
+    // For attachments imported before thumbnails existed; returns how many were written
+    fun generateMissing(context: Context, imagePath: String): Int {
+        val missing = SIZES.filter { find(context, imagePath, it) == null }
+        if (missing.isEmpty() || !File(imagePath).exists()) return 0
+        val bounds = BitmapFactory.Options().apply { inJustDecodeBounds = true }
+        BitmapFactory.decodeFile(imagePath, bounds)
+        var sampleSize = 1
+        val longEdge = maxOf(bounds.outWidth, bounds.outHeight)
+        while (longEdge / (sampleSize * 2) >= SIZES.max()) sampleSize *= 2
+        val source = BitmapFactory.decodeFile(imagePath, BitmapFactory.Options().apply { inSampleSize = sampleSize })
+            ?: return 0
+        dir(context).mkdirs()
+        missing.forEach { write(context, imagePath, source, it) }
+        source.recycle()
+        return missing.size
+    }
+
+    // Attachments generateMissing() couldn't decode; the maintenance backfill skips them
+    fun failedPaths(context: Context): Set<String> =
+        prefs(context).getStringSet(KEY_FAILED, null).orEmpty()
+
+    fun setFailedPaths(context: Context, paths: Set<String>) {
+        prefs(context).edit().putStringSet(KEY_FAILED, HashSet(paths)).apply()
+    }
+
+    private fun write(context: Context, imagePath: String, source: Bitmap, sizePx: Int) {
+        val longEdge = maxOf(source.width, source.height)
+        val scale = minOf(1f, sizePx.toFloat() / longEdge)
+        val scaled = Bitmap.createScaledBitmap(
+            source,
+            (source.width * scale).toInt().coerceAtLeast(1),
+            (source.height * scale).toInt().coerceAtLeast(1),
+            true
+        )
+        try {
+            FileOutputStream(file(context, imagePath, sizePx)).use { out ->
+                scaled.compress(Bitmap.CompressFormat.JPEG, QUALITY, out)
+            }
+        } finally {
+            if (scaled !== source) scaled.recycle()
+        }
+    }
+
+    private fun prefs(context: Context) =
+        context.applicationContext.getSharedPreferences(PREFS, Context.MODE_PRIVATE)
+}
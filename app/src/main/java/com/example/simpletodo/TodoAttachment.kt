@@ -0,0 +1,35 @@
+package com.example.simpletodo
+
+import androidx.room.Embedded
+import androidx.room.Entity
+import androidx.room.ForeignKey
+import androidx.room.Index
+import androidx.room.PrimaryKey
+import androidx.room.Relation
+
+// v1.7: image attachments moved out of the todo_items.imagePaths JSON column
+@Entity(
+    tableName = "todo_attachments",
+    foreignKeys = [
+        ForeignKey(
+            entity = TodoItem::class,
+            parentColumns = ["id"],
+            childColumns = ["todoId"],
+            onDelete = ForeignKey.CASCADE
+        )
+    ],
+    indices = [Index(value = ["todoId"])]
+)
+data class TodoAttachment(
+    @PrimaryKey(autoGenerate = true) val id: Long = 0,
+    val todoId: Long,
+    val path: String,
+    val position: Int = 0
+)
+
+// Only loaded for an expanded row or the edit dialog; list queries never join attachments
+data class TodoWithAttachments(
+    @Embedded val todo: TodoItem,
+    @Relation(parentColumn = "id", entityColumn = "todoId")
+    val attachments: List<TodoAttachment>
+)
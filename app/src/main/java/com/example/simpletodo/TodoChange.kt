@@ -0,0 +1,34 @@
+package com.example.simpletodo
+
+import androidx.room.Entity
+import androidx.room.PrimaryKey
+import androidx.sqlite.db.SupportSQLiteDatabase
+
+// v1.7: change log filled by SQLite triggers on todo_items, consumed by TodoChangeFeed
+@Entity(tableName = "todo_changes")
+data class TodoChange(
+    @PrimaryKey(autoGenerate = true) val seq: Long = 0,
+    val todoId: Long,
+    val op: Int
+) {
+    companion object {
+        const val OP_INSERT = 1
+        const val OP_UPDATE = 2
+        const val OP_DELETE = 3
+
+        // Room doesn't manage triggers: created by MIGRATION_7_8 and on fresh installs by the database callback.
+        // Any migration that rebuilds todo_items must call this again.
+        fun createTriggers(db: SupportSQLiteDatabase) {
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS `todo_items_change_insert` AFTER INSERT ON `todo_items` BEGIN INSERT INTO `todo_changes` (todoId, op) VALUES (NEW.id, $OP_INSERT); END")
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS `todo_items_change_update` AFTER UPDATE ON `todo_items` BEGIN INSERT INTO `todo_changes` (todoId, op) VALUES (NEW.id, $OP_UPDATE); END")
+            db.execSQL("CREATE TRIGGER IF NOT EXISTS `todo_items_change_delete` AFTER DELETE ON `todo_items` BEGIN INSERT INTO `todo_changes` (todoId, op) VALUES (OLD.id, $OP_DELETE); END")
+        }
+    }
+}
+
+// Minimal row state needed to place a todo in the list buckets
+data class TodoDueState(
+    val id: Long,
+    val timeInMillis: Long,
+    val isDone: Boolean
+)
@@ -0,0 +1,63 @@
+package com.example.simpletodo
+
+import kotlinx.coroutines.flow.Flow
+import kotlinx.coroutines.flow.flow
+
+// Net effect of a run of todo_changes rows, collapsed per id
+data class TodoChangeSet(
+    val inserted: Set<Long>,
+    val updated: Set<Long>,
+    val deleted: Set<Long>
+) {
+    // Ids whose current row state must be re-read
+    val touched: Set<Long> get() = inserted + updated
+}
+
+// Turns the trigger-maintained todo_changes log into change sets, so consumers can patch
+// their in-memory state in O(changes) instead of re-querying every row.
+class TodoChangeFeed(private val dao: TodoDao) {
+
+    suspend fun latestSeq(): Long = dao.getLatestChangeSeq() ?: 0L
+
+    // Emits everything logged after startSeq, then keeps following the table.
+    // Consumed rows are pruned as they are emitted; the feed has a single consumer.
+    fun changesSince(startSeq: Long): Flow<TodoChangeSet> = flow {
+        var lastSeq = startSeq
+        dao.pruneChanges(lastSeq)
+        dao.observeLatestChangeSeq().collect { latest ->
+            if (latest == null || latest <= lastSeq) return@collect
+            while (true) {
+                val batch = dao.getChangesSince(lastSeq, BATCH_SIZE)
+                if (batch.isEmpty()) break
+                lastSeq = batch.last().seq
+                emit(collapse(batch))
+                if (batch.size < BATCH_SIZE) break
+            }
+            dao.pruneChanges(lastSeq)
+        }
+    }
+
+    private fun collapse(changes: List<TodoChange>): TodoChangeSet {
+        val firstOp = HashMap<Long, Int>()
+        val lastOp = HashMap<Long, Int>()
+        for (change in changes) {
+            firstOp.putIfAbsent(change.todoId, change.op)
+            lastOp[change.todoId] = change.op
+        }
+        val inserted = HashSet<Long>()
+        val updated = HashSet<Long>()
+        val deleted = HashSet<Long>()
+        for ((id, op) in lastOp) {
+            when {
+                op == TodoChange.OP_DELETE -> deleted.add(id)
+                firstOp[id] == TodoChange.OP_INSERT -> inserted.add(id)
+                else -> updated.add(id)
+            }
+        }
+        return TodoChangeSet(inserted, updated, deleted)
+    }
+
+    companion object {
+        private const val BATCH_SIZE = 500
+    }
+}
@@ -1,6 +1,7 @@
 package com.example.simpletodo
 
 import android.content.Context
+import androidx.paging.PagingSource
 import androidx.room.Dao
 import androidx.room.Database
 import androidx.room.Delete
@@ -9,9 +10,8 @@ import androidx.room.OnConflictStrategy
 import androidx.room.Query
 import androidx.room.Room
 import androidx.room.RoomDatabase
+import androidx.room.Transaction
 import androidx.room.Update
-import androidx.room.TypeConverter
-import androidx.room.TypeConverters
 import com.google.gson.Gson
 import com.google.gson.reflect.TypeToken
 import kotlinx.coroutines.flow.Flow
@@ -20,14 +20,54 @@ import androidx.sqlite.db.SupportSQLiteDatabase
 
 @Dao
 interface TodoDao {
-    @Query("SELECT * FROM todo_items ORDER BY timeInMillis ASC")
-    fun getAllTodos(): Flow<List<TodoItem>>
+    // --- Change feed (see TodoChangeFeed) ---
 
-    @Query("SELECT * FROM todo_items ORDER BY timeInMillis ASC")
-    suspend fun getAllTodosList(): List<TodoItem>
+    @Query("SELECT MAX(seq) FROM todo_changes")
+    fun observeLatestChangeSeq(): Flow<Long?>
 
-    @Query("SELECT * FROM todo_items WHERE id = :id")
-    suspend fun getTodoById(id: Long): TodoItem?
+    @Query("SELECT MAX(seq) FROM todo_changes")
+    suspend fun getLatestChangeSeq(): Long?
+
+    @Query("SELECT * FROM todo_changes WHERE seq > :afterSeq ORDER BY seq ASC LIMIT :limit")
+    suspend fun getChangesSince(afterSeq: Long, limit: Int): List<TodoChange>
+
+    @Query("DELETE FROM todo_changes WHERE seq <= :upToSeq")
+    suspend fun pruneChanges(upToSeq: Long)
+
+    @Query("SELECT id, timeInMillis, isDone FROM todo_items WHERE isDone = 0")
+    suspend fun getPendingDueStates(): List<TodoDueState>
+
+    @Query("SELECT id, timeInMillis, isDone FROM todo_items WHERE id IN (:ids)")
+    suspend fun getDueStatesChunk(ids: List<Long>): List<TodoDueState>
+
+    @Transaction
+    suspend fun getDueStates(ids: List<Long>): List<TodoDueState> =
+        ids.chunked(MAX_BIND_ARGS).flatMap { getDueStatesChunk(it) }
+
+    // Paged variant for the task list: only the visible window is loaded
+    @Query("SELECT * FROM todo_items WHERE isDone = 0 AND timeInMillis >= :from AND timeInMillis < :to ORDER BY timeInMillis ASC")
+    fun pagePendingBetween(from: Long, to: Long): PagingSource<Int, TodoItem>
+
+    // --- Reminder path: projections and targeted column updates ---
+
+    @Query("SELECT id, name, timeInMillis, isMonthly, remindCount, isDone, maxRetries, retryIntervalHours, repeatMode, recurrence FROM todo_items WHERE id = :id")
+    suspend fun getReminderTarget(id: Long): ReminderTarget?
+
+    @Query("SELECT id, name, timeInMillis, isMonthly, remindCount, isDone, maxRetries, retryIntervalHours, repeatMode, recurrence FROM todo_items WHERE id IN (:ids)")
+    suspend fun getReminderTargetsChunk(ids: List<Long>): List<ReminderTarget>
+
+    @Transaction
+    suspend fun getReminderTargets(ids: List<Long>): List<ReminderTarget> =
+        ids.chunked(MAX_BIND_ARGS).flatMap { getReminderTargetsChunk(it) }
+
+    @Query("UPDATE todo_items SET remindCount = remindCount + 1 WHERE id = :id")
+    suspend fun incrementRemindCount(id: Long)
+
+    @Query("UPDATE todo_items SET isDone = 1 WHERE id = :id")
+    suspend fun markDoneById(id: Long)
+
+    @Query("UPDATE todo_items SET timeInMillis = :timeInMillis, remindCount = 0, isDone = 0 WHERE id = :id")
+    suspend fun rollForward(id: Long, timeInMillis: Long)
 
     @Insert(onConflict = OnConflictStrategy.REPLACE)
     suspend fun insert(todo: TodoItem): Long
@@ -37,6 +77,190 @@ interface TodoDao {
 
     @Delete
     suspend fun delete(todo: TodoItem)
+
+    // --- Bulk operations: one transaction, one invalidation of the list queries ---
+
+    @Insert
+    suspend fun insertAll(todos: List<TodoItem>): List<Long>
+
+    @Update
+    suspend fun updateAll(todos: List<TodoItem>)
+
+    @Query("SELECT * FROM todo_items WHERE id IN (:ids)")
+    suspend fun getTodosByIdsChunk(ids: List<Long>): List<TodoItem>
+
+    @Query("DELETE FROM todo_items WHERE id IN (:ids)")
+    suspend fun deleteByIdsChunk(ids: List<Long>): Int
+
+    @Query("UPDATE todo_items SET isDone = 1 WHERE id IN (:ids)")
+    suspend fun markDoneByIdsChunk(ids: List<Long>): Int
+
+    @Query("UPDATE todo_items SET timeInMillis = :timeInMillis, remindCount = 0, isDone = 0 WHERE id IN (:ids)")
+    suspend fun rescheduleByIdsChunk(ids: List<Long>, timeInMillis: Long): Int
+
+    // IN lists are chunked to stay under SQLite's bind-argument limit
+    @Transaction
+    suspend fun getTodosByIds(ids: List<Long>): List<TodoItem> =
+        ids.chunked(MAX_BIND_ARGS).flatMap { getTodosByIdsChunk(it) }
+
+    @Transaction
+    suspend fun deleteByIds(ids: List<Long>): Int =
+        ids.chunked(MAX_BIND_ARGS).sumOf { deleteByIdsChunk(it) }
+
+    @Transaction
+    suspend fun markDoneByIds(ids: List<Long>): Int =
+        ids.chunked(MAX_BIND_ARGS).sumOf { markDoneByIdsChunk(it) }
+
+    @Transaction
+    suspend fun rescheduleByIds(ids: List<Long>, timeInMillis: Long): Int =
+        ids.chunked(MAX_BIND_ARGS).sumOf { rescheduleByIdsChunk(it, timeInMillis) }
+
+    // Completes a mixed selection: one-off tasks are marked done, recurring ones are rolled forward
+    @Transaction
+    suspend fun completeBulk(doneIds: List<Long>, rolledForward: List<TodoItem>) {
+        markDoneByIds(doneIds)
+        if (rolledForward.isNotEmpty()) updateAll(rolledForward)
+    }
+
+    // --- Attachments ---
+
+    @Transaction
+    @Query("SELECT * FROM todo_items WHERE id = :id")
+    fun getTodoWithAttachments(id: Long): Flow<TodoWithAttachments?>
+
+    @Query("SELECT COUNT(*) FROM todo_attachments WHERE todoId = :todoId")
+    suspend fun countAttachments(todoId: Long): Int
+
+    // Maintenance: every path still referenced, for the thumbnail backfill
+    @Query("SELECT DISTINCT path FROM todo_attachments")
+    suspend fun getAllAttachmentPaths(): List<String>
+
+    // Orphan collector: which of these files something still points at (an attachment, or a
+    // store entry that AttachmentStore reference-counts itself)
+    @Query("SELECT path FROM todo_attachments WHERE path IN (:paths) UNION SELECT path FROM attachment_blobs WHERE path IN (:paths)")
+    suspend fun getReferencedPathsChunk(paths: List<String>): List<String>
+
+    @Transaction
+    suspend fun getReferencedPaths(paths: List<String>): Set<String> =
+        paths.chunked(MAX_BIND_ARGS / 2).flatMapTo(HashSet()) { getReferencedPathsChunk(it) }
+
+    @Insert
+    suspend fun insertAttachments(attachments: List<TodoAttachment>)
+
+    @Transaction
+    suspend fun insertWithAttachments(todo: TodoItem, imagePaths: List<String>): Long {
+        val id = insert(todo)
+        addAttachments(id, imagePaths)
+        return id
+    }
+
+    @Transaction
+    suspend fun updateWithAttachments(todo: TodoItem, newImagePaths: List<String>) {
+        update(todo)
+        addAttachments(todo.id, newImagePaths)
+    }
+
+    // Appends after the existing attachments of the todo
+    @Transaction
+    suspend fun addAttachments(todoId: Long, imagePaths: List<String>) {
+        if (imagePaths.isEmpty()) return
+        val offset = countAttachments(todoId)
+        insertAttachments(imagePaths.mapIndexed { index, path ->
+            TodoAttachment(todoId = todoId, path = path, position = offset + index)
+        })
+    }
+
+    companion object {
+        // SQLite's default SQLITE_MAX_VARIABLE_NUMBER is 999 on older devices
+        const val MAX_BIND_ARGS = 900
+    }
+}
+
+@Dao
+interface AlarmQueueDao {
+    // Earliest first-time reminder and earliest retry, kept apart because quiet hours may treat
+    // them differently. Both walk index_scheduled_alarms_triggerAt and stop at the first match.
+    @Query("SELECT a.triggerAt FROM scheduled_alarms a INNER JOIN todo_items t ON t.id = a.todoId WHERE t.remindCount = 0 ORDER BY a.triggerAt ASC LIMIT 1")
+    suspend fun getEarliestTrigger(): Long?
+
+    @Query("SELECT a.triggerAt FROM scheduled_alarms a INNER JOIN todo_items t ON t.id = a.todoId WHERE t.remindCount > 0 ORDER BY a.triggerAt ASC LIMIT 1")
+    suspend fun getEarliestRetryTrigger(): Long?
+
+    // Keyset page of entries due by `until` after (afterTime, afterId); entries a pass leaves
+    // queued (deferred by quiet hours) are stepped over instead of returned again
+    @Query("SELECT * FROM scheduled_alarms WHERE triggerAt <= :until AND (triggerAt > :afterTime OR (triggerAt = :afterTime AND todoId > :afterId)) ORDER BY triggerAt ASC, todoId ASC LIMIT :limit")
+    suspend fun getDuePage(until: Long, afterTime: Long, afterId: Long, limit: Int): List<ScheduledAlarm>
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    suspend fun upsertAll(alarms: List<ScheduledAlarm>)
+
+    @Query("DELETE FROM scheduled_alarms WHERE todoId IN (:ids)")
+    suspend fun removeChunk(ids: List<Long>)
+
+    @Query("SELECT * FROM scheduled_alarms WHERE todoId IN (:ids)")
+    suspend fun getByIdsChunk(ids: List<Long>): List<ScheduledAlarm>
+
+    // Current trigger per queued todo id
+    @Transaction
+    suspend fun getTriggers(ids: List<Long>): Map<Long, Long> {
+        val triggers = HashMap<Long, Long>(ids.size)
+        ids.chunked(TodoDao.MAX_BIND_ARGS).forEach { chunk ->
+            getByIdsChunk(chunk).forEach { triggers[it.todoId] = it.triggerAt }
+        }
+        return triggers
+    }
+
+    // --- Reconciliation: diff todo_items against the queue (the ledger of what should be armed) ---
+
+    // Pending future todos missing from the queue. Runs entirely in SQLite, no rows are loaded.
+    @Query("INSERT INTO scheduled_alarms (todoId, triggerAt) SELECT id, timeInMillis FROM todo_items WHERE isDone = 0 AND timeInMillis > :now AND id NOT IN (SELECT todoId FROM scheduled_alarms)")
+    suspend fun insertMissing(now: Long)
+
+    @Query("SELECT COUNT(*) FROM todo_items WHERE isDone = 0 AND timeInMillis > :now AND id NOT IN (SELECT todoId FROM scheduled_alarms)")
+    suspend fun countMissing(now: Long): Int
+
+    // Entries left behind by todos completed without going through AlarmScheduler
+    @Query("DELETE FROM scheduled_alarms WHERE todoId IN (SELECT id FROM todo_items WHERE isDone = 1)")
+    suspend fun removeFinished(): Int
+
+    // Entries whose time no longer matches the todo. Only for remindCount = 0: a todo in its
+    // retry cycle is legitimately queued at its retry time.
+    @Query("UPDATE scheduled_alarms SET triggerAt = (SELECT timeInMillis FROM todo_items WHERE id = scheduled_alarms.todoId) WHERE EXISTS (SELECT 1 FROM todo_items t WHERE t.id = scheduled_alarms.todoId AND t.isDone = 0 AND t.remindCount = 0 AND t.timeInMillis != scheduled_alarms.triggerAt)")
+    suspend fun fixDrifted(): Int
+
+    @Transaction
+    suspend fun reconcile(now: Long): Reconciliation {
+        val added = countMissing(now)
+        if (added > 0) insertMissing(now)
+        return Reconciliation(added = added, fixed = fixDrifted(), removed = removeFinished())
+    }
+
+    @Transaction
+    suspend fun applyChanges(schedule: List<ScheduledAlarm>, cancel: List<Long>) {
+        cancel.chunked(TodoDao.MAX_BIND_ARGS).forEach { removeChunk(it) }
+        if (schedule.isNotEmpty()) upsertAll(schedule)
+    }
+}
+
+@Dao
+interface AttachmentBlobDao {
+    @Query("SELECT * FROM attachment_blobs WHERE hash = :hash")
+    suspend fun getByHash(hash: String): AttachmentBlob?
+
+    // Concurrent imports of the same image both get here; the first row wins
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    suspend fun insert(blob: AttachmentBlob)
+
+    @Query("UPDATE attachment_blobs SET touchedAt = :now WHERE hash = :hash")
+    suspend fun touch(hash: String, now: Long)
+
+    // No attachment points at these any more (and no import is about to)
+    @Query("SELECT * FROM attachment_blobs WHERE refCount <= 0 AND touchedAt < :cutoff LIMIT :limit")
+    suspend fun getReleased(cutoff: Long, limit: Int): List<AttachmentBlob>
+
+    // Re-checks both conditions so a blob re-referenced or re-imported since getReleased() survives
+    @Query("DELETE FROM attachment_blobs WHERE hash = :hash AND refCount <= 0 AND touchedAt < :cutoff")
+    suspend fun deleteIfReleased(hash: String, cutoff: Long): Int
 }
 
 @Dao
@@ -46,28 +270,34 @@ interface LogDao {
 
     @Insert
     suspend fun insert(log: LogEntry)
+
+    @Insert
+    suspend fun insertAll(logs: List<LogEntry>)
     
     @Query("DELETE FROM app_logs")
     suspend fun clearLogs()
-}
 
-class Converters {
-    @TypeConverter
-    fun fromString(value: String): List<String> {
-        val listType = object : TypeToken<List<String>>() {}.type
-        return Gson().fromJson(value, listType)
-    }
+    @Query("SELECT COUNT(*) FROM app_logs")
+    fun getLogCount(): Flow<Int>
 
-    @TypeConverter
-    fun fromList(list: List<String>): String {
-        return Gson().toJson(list)
-    }
+    // Key of the (offset + 1)-th newest entry; id breaks ties between rows logged in the same millisecond
+    @Query("SELECT timestamp, id FROM app_logs ORDER BY timestamp DESC, id DESC LIMIT 1 OFFSET :offset")
+    suspend fun getKeyAtOffset(offset: Int): LogKey?
+
+    // Deletes at most `limit` of the oldest rows before `cutoff`
+    @Query("DELETE FROM app_logs WHERE id IN (SELECT id FROM app_logs WHERE timestamp < :cutoff ORDER BY timestamp ASC LIMIT :limit)")
+    suspend fun deleteOlderThan(cutoff: Long, limit: Int): Int
+
+    // Deletes at most `limit` of the oldest rows at or before the key (timestamp, id)
+    @Query("DELETE FROM app_logs WHERE id IN (SELECT id FROM app_logs WHERE timestamp < :timestamp OR (timestamp = :timestamp AND id <= :id) ORDER BY timestamp ASC, id ASC LIMIT :limit)")
+    suspend fun deleteUpTo(timestamp: Long, id: Long, limit: Int): Int
 }
 
-@Database(entities = [TodoItem::class, LogEntry::class], version = 4, exportSchema = false)
-@TypeConverters(Converters::class)
+@Database(entities = [TodoItem::class, TodoAttachment::class, TodoChange::class, ScheduledAlarm::class, AttachmentBlob::class, LogEntry::class], version = 11, exportSchema = false)
 abstract class TodoDatabase : RoomDatabase() {
     abstract fun todoDao(): TodoDao
+    abstract fun alarmQueueDao(): AlarmQueueDao
+    abstract fun attachmentBlobDao(): AttachmentBlobDao
     abstract fun logDao(): LogDao
 
     companion object {
@@ -87,14 +317,120 @@ abstract class TodoDatabase : RoomDatabase() {
             }
         }
 
+        val MIGRATION_4_5 = object : Migration(4, 5) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                // Composite indexes for the range queries in TodoDao.
+                // Names must match what Room generates for the @Index declarations on TodoItem.
+                db.execSQL("CREATE INDEX IF NOT EXISTS `index_todo_items_isDone_timeInMillis` ON `todo_items` (`isDone`, `timeInMillis`)")
+                db.execSQL("CREATE INDEX IF NOT EXISTS `index_todo_items_repeatMode_timeInMillis` ON `todo_items` (`repeatMode`, `timeInMillis`)")
+            }
+        }
+
+        val MIGRATION_5_6 = object : Migration(5, 6) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                // Read the legacy JSON image lists once, with a single Gson instance
+                val gson = Gson()
+                val listType = object : TypeToken<List<String>>() {}.type
+                val legacyImages = mutableListOf<Pair<Long, List<String>>>()
+                db.query("SELECT id, imagePaths FROM todo_items WHERE imagePaths != '[]'").use { cursor ->
+                    while (cursor.moveToNext()) {
+                        val paths: List<String>? = try {
+                            gson.fromJson(cursor.getString(1), listType)
+                        } catch (e: Exception) {
+                            null
+                        }
+                        if (!paths.isNullOrEmpty()) legacyImages.add(cursor.getLong(0) to paths)
+                    }
+                }
+
+                // DROP COLUMN needs SQLite 3.35 (Android 14), so rebuild todo_items without imagePaths
+                db.execSQL("CREATE TABLE IF NOT EXISTS `todo_items_new` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `name` TEXT NOT NULL, `timeInMillis` INTEGER NOT NULL, `isMonthly` INTEGER NOT NULL, `remindCount` INTEGER NOT NULL, `isDone` INTEGER NOT NULL, `remarks` TEXT NOT NULL, `maxRetries` INTEGER NOT NULL, `retryIntervalHours` INTEGER NOT NULL, `repeatMode` INTEGER NOT NULL)")
+                db.execSQL("INSERT INTO `todo_items_new` (id, name, timeInMillis, isMonthly, remindCount, isDone, remarks, maxRetries, retryIntervalHours, repeatMode) SELECT id, name, timeInMillis, isMonthly, remindCount, isDone, remarks, maxRetries, retryIntervalHours, repeatMode FROM todo_items")
+                db.execSQL("DROP TABLE todo_items")
+                db.execSQL("ALTER TABLE todo_items_new RENAME TO todo_items")
+                db.execSQL("CREATE INDEX IF NOT EXISTS `index_todo_items_isDone_timeInMillis` ON `todo_items` (`isDone`, `timeInMillis`)")
+                db.execSQL("CREATE INDEX IF NOT EXISTS `index_todo_items_repeatMode_timeInMillis` ON `todo_items` (`repeatMode`, `timeInMillis`)")
+
+                // Created after the rebuild so the foreign key points at the final table
+                db.execSQL("CREATE TABLE IF NOT EXISTS `todo_attachments` (`id` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `todoId` INTEGER NOT NULL, `path` TEXT NOT NULL, `position` INTEGER NOT NULL, FOREIGN KEY(`todoId`) REFERENCES `todo_items`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )")
+                db.execSQL("CREATE INDEX IF NOT EXISTS `index_todo_attachments_todoId` ON `todo_attachments` (`todoId`)")
+                legacyImages.forEach { (todoId, paths) ->
+                    paths.forEachIndexed { index, path ->
+                        db.execSQL(
+                            "INSERT INTO todo_attachments (todoId, path, position) VALUES (?, ?, ?)",
+                            arrayOf<Any>(todoId, path, index)
+                        )
+                    }
+                }
+            }
+        }
+
+        val MIGRATION_6_7 = object : Migration(6, 7) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL("CREATE INDEX IF NOT EXISTS `index_app_logs_timestamp` ON `app_logs` (`timestamp`)")
+            }
+        }
+
+        val MIGRATION_7_8 = object : Migration(7, 8) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL("CREATE TABLE IF NOT EXISTS `todo_changes` (`seq` INTEGER PRIMARY KEY AUTOINCREMENT NOT NULL, `todoId` INTEGER NOT NULL, `op` INTEGER NOT NULL)")
+                TodoChange.createTriggers(db)
+            }
+        }
+
+        val MIGRATION_8_9 = object : Migration(8, 9) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL("CREATE TABLE IF NOT EXISTS `scheduled_alarms` (`todoId` INTEGER NOT NULL, `triggerAt` INTEGER NOT NULL, PRIMARY KEY(`todoId`), FOREIGN KEY(`todoId`) REFERENCES `todo_items`(`id`) ON UPDATE NO ACTION ON DELETE CASCADE )")
+                db.execSQL("CREATE INDEX IF NOT EXISTS `index_scheduled_alarms_triggerAt` ON `scheduled_alarms` (`triggerAt`)")
+                // Seed the queue with what used to be armed as per-todo alarms
+                db.execSQL(
+                    "INSERT INTO scheduled_alarms (todoId, triggerAt) SELECT id, timeInMillis FROM todo_items WHERE isDone = 0 AND timeInMillis > ?",
+                    arrayOf<Any>(System.currentTimeMillis())
+                )
+            }
+        }
+
+        val MIGRATION_9_10 = object : Migration(9, 10) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL("ALTER TABLE todo_items ADD COLUMN recurrence TEXT")
+                // Spell out the legacy repeat modes as rules; monthly pins the current local day of month
+                db.execSQL("UPDATE todo_items SET recurrence = 'FREQ=WEEKLY' WHERE repeatMode = 1")
+                db.execSQL(
+                    "UPDATE todo_items SET recurrence = 'FREQ=MONTHLY;BYMONTHDAY=' || " +
+                        "CAST(strftime('%d', timeInMillis / 1000, 'unixepoch', 'localtime') AS INTEGER) " +
+                        "WHERE repeatMode = 2 OR (repeatMode = 0 AND isMonthly = 1)"
+                )
+            }
+        }
+
+        val MIGRATION_10_11 = object : Migration(10, 11) {
+            override fun migrate(db: SupportSQLiteDatabase) {
+                db.execSQL("CREATE TABLE IF NOT EXISTS `attachment_blobs` (`hash` TEXT NOT NULL, `path` TEXT NOT NULL, `sizeBytes` INTEGER NOT NULL, `refCount` INTEGER NOT NULL, `touchedAt` INTEGER NOT NULL, PRIMARY KEY(`hash`))")
+                db.execSQL("CREATE UNIQUE INDEX IF NOT EXISTS `index_attachment_blobs_path` ON `attachment_blobs` (`path`)")
+                // Existing img_<UUID> files stay unmanaged; the maintenance orphan sweep still covers them
+                AttachmentBlob.createTriggers(db)
+            }
+        }
+
+        private val CREATE_CALLBACK = object : RoomDatabase.Callback() {
+            override fun onCreate(db: SupportSQLiteDatabase) {
+                TodoChange.createTriggers(db)
+                AttachmentBlob.createTriggers(db)
+            }
+        }
+
         fun getDatabase(context: Context): TodoDatabase {
             return INSTANCE ?: synchronized(this) {
+                // Re-checked under the lock: prewarm, the activity and receivers race to get here,
+                // and a second instance would have its own invalidation tracker
+                INSTANCE?.let { return it }
                 val instance = Room.databaseBuilder(
                     context.applicationContext,
                     TodoDatabase::class.java,
                     "todo_database"
                 )
-                .addMigrations(MIGRATION_3_4)
+                .addMigrations(MIGRATION_3_4, MIGRATION_4_5, MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10, MIGRATION_10_11)
+                .addCallback(CREATE_CALLBACK)
                 .build()
                 INSTANCE = instance
                 instance
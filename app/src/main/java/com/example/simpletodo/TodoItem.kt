@@ -1,9 +1,17 @@
 package com.example.simpletodo
 
 import androidx.room.Entity
+import androidx.room.Index
 import androidx.room.PrimaryKey
 
-@Entity(tableName = "todo_items")
+@Entity(
+    tableName = "todo_items",
+    indices = [
+        // v1.7: range queries (pending list, overdue, boot reschedule) filter on isDone/repeatMode and order by time
+        Index(value = ["isDone", "timeInMillis"]),
+        Index(value = ["repeatMode", "timeInMillis"])
+    ]
+)
 data class TodoItem(
     @PrimaryKey(autoGenerate = true) val id: Long = 0,
     val name: String,
@@ -14,11 +22,14 @@ data class TodoItem(
     
     // New fields for v1.3
     val remarks: String = "",
-    val imagePaths: List<String> = emptyList(),
+    // imagePaths moved to todo_attachments in v1.7 (see TodoAttachment)
     val maxRetries: Int = 3,
     val retryIntervalHours: Int = 1,
     
     // New fields for v1.5
-    // 0 = None, 1 = Weekly, 2 = Monthly
-    val repeatMode: Int = 0 
+    // 0 = None, 1 = Weekly, 2 = Monthly, 3 = Daily, 4 = Yearly
+    val repeatMode: Int = 0,
+
+    // v1.7: RRULE-style rule (see RecurrenceRule); null falls back to repeatMode
+    val recurrence: String? = null
 )
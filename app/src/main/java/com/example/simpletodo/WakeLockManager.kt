@@ -0,0 +1,88 @@
+package com.example.simpletodo
+
+import android.content.Context
+import android.os.PowerManager
+import android.os.SystemClock
+
+// One partial wake lock shared by every in-flight broadcast, with our own holder count
+// (the platform lock is not reference counted, so a timed-out holder can't over-release it).
+// Hold times are recorded per action in AppMetrics ("wakelock.<action>") and the timeout for
+// the next acquire is sized from them instead of a flat 10 minutes.
+object WakeLockManager {
+    private const val TAG = "SimpleTodo:ReminderWakeLock"
+    private const val METRIC_PREFIX = "wakelock."
+
+    const val ACTION_REMINDER = "reminder"
+    const val ACTION_DONE = "done"
+    const val ACTION_BOOT = "boot"
+    const val ACTION_RECONCILE = "reconcile"
+
+    private const val MIN_SAMPLES = 10 // Until then, use the old fixed budget
+    private const val HEADROOM = 4 // Timeout = p99 x HEADROOM
+    private const val MIN_TIMEOUT_MS = 30_000L
+    private const val MAX_TIMEOUT_MS = 10 * 60 * 1000L
+
+    class Hold internal constructor(val action: String, val startedAt: Long, val timeoutMs: Long)
+
+    private var wakeLock: PowerManager.WakeLock? = null
+    private var holders = 0
+    private var releaseAt = 0L // elapsedRealtime at which the platform lock times out
+    private var timeouts = 0L
+    // Per-action timeouts, computed off the main thread (prewarm / release) so acquire() in
+    // onReceive never reads SharedPreferences; missing entries use the fixed budget
+    private val cachedTimeouts = HashMap<String, Long>()
+
+    // Holds that outlived their timeout (the lock was already gone before the work finished)
+    val timeoutCount: Long @Synchronized get() = timeouts
+
+    @Synchronized
+    fun acquire(context: Context, action: String): Hold {
+        val lock = wakeLock ?: context.applicationContext.getSystemService(PowerManager::class.java)
+            .newWakeLock(PowerManager.PARTIAL_WAKE_LOCK, TAG)
+            .apply { setReferenceCounted(false) }
+            .also { wakeLock = it }
+
+        val now = SystemClock.elapsedRealtime()
+        val timeout = cachedTimeouts[action] ?: MAX_TIMEOUT_MS
+        // Re-acquiring replaces the pending timeout, so never shorten one another holder still needs
+        if (holders == 0 || now + timeout > releaseAt) {
+            releaseAt = now + timeout
+            lock.acquire(timeout)
+        }
+        holders++
+        return Hold(action, now, timeout)
+    }
+
+    @Synchronized
+    fun release(context: Context, hold: Hold) {
+        val heldMs = SystemClock.elapsedRealtime() - hold.startedAt
+        if (heldMs > hold.timeoutMs) {
+            timeouts++
+            AppLogger.log(context, "WakeLock", "${hold.action} ran ${heldMs} ms, past its ${hold.timeoutMs} ms timeout")
+        }
+        AppMetrics.record(context, METRIC_PREFIX + hold.action, heldMs)
+        cachedTimeouts[hold.action] = timeoutFor(context, hold.action)
+
+        holders = (holders - 1).coerceAtLeast(0)
+        if (holders == 0) {
+            wakeLock?.let { if (it.isHeld) it.release() }
+        }
+    }
+
+    // Called in the background at process start
+    @Synchronized
+    fun warm(context: Context) {
+        listOf(ACTION_REMINDER, ACTION_DONE, ACTION_BOOT, ACTION_RECONCILE).forEach {
+            cachedTimeouts[it] = timeoutFor(context, it)
+        }
+    }
+
+    fun timeoutFor(context: Context, action: String): Long {
+        val summary = AppMetrics.summary(context, METRIC_PREFIX + action)
+        if (summary == null || summary.samples.size < MIN_SAMPLES) return MAX_TIMEOUT_MS
+        return (summary.percentile(0.99) * HEADROOM).coerceIn(MIN_TIMEOUT_MS, MAX_TIMEOUT_MS)
+    }
+
+    fun summaries(context: Context): List<AppMetrics.Summary> =
+        AppMetrics.summaries(context).filter { it.name.startsWith(METRIC_PREFIX) }
+}